@@ -51,6 +51,10 @@ android {
     dataBinding = true
     viewBinding = true
   }
+  sourceSets {
+    // Migration tests create databases from the exported schemas
+    getByName("androidTest").assets.srcDir("$projectDir/schemas")
+  }
   packagingOptions {
     exclude("META-INF/DEPENDENCIES")
     exclude("META-INF/LICENSE")
@@ -64,6 +68,13 @@ android {
   }
 }
 
+kapt {
+  arguments {
+    // Export the Room schema of every database version so migrations can be reviewed and tested
+    arg("room.schemaLocation", "$projectDir/schemas")
+  }
+}
+
 ktfmt {
   googleStyle()
 
@@ -84,6 +95,8 @@ dependencies {
 
   implementation(fileTree(mapOf("dir" to "libs", "include" to listOf("*.jar"))))
 
+  implementation(project(":validator"))
+
   implementation(Dependencies.AndroidX.appcompat)
   implementation(Dependencies.AndroidX.constraintLayout)
   implementation(Dependencies.AndroidX.datastorePrefs)
@@ -137,6 +150,13 @@ dependencies {
 
   debugImplementation(Dependencies.ThirdParty.debugDB)
 
+  testImplementation(Dependencies.Test.junit)
+  testImplementation(Dependencies.Test.mockWebServer)
+
+  androidTestImplementation(Dependencies.Test.androidxJunit)
+  androidTestImplementation(Dependencies.Test.androidxRunner)
+  androidTestImplementation(Dependencies.AndroidX.Room.roomTesting)
+
   implementation("com.mcxiaoke.volley:library:1.0.19")
   implementation("com.nex3z:flow-layout:1.3.4-beta01")
 
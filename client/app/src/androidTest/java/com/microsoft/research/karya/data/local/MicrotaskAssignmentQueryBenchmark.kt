@@ -0,0 +1,216 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.research.karya.data.local
+
+import android.util.Log
+import androidx.room.testing.MigrationTestHelper
+import androidx.sqlite.db.SupportSQLiteDatabase
+import androidx.sqlite.db.framework.FrameworkSQLiteOpenHelperFactory
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.platform.app.InstrumentationRegistry
+import com.microsoft.research.karya.data.manager.KaryaDatabase
+import com.microsoft.research.karya.data.model.karya.enums.MicrotaskAssignmentStatus
+import kotlin.random.Random
+import org.junit.Assert.assertEquals
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+private const val TAG = "QueryBenchmark"
+private const val TASKS = 10
+private const val WORKER_ID = "worker"
+private const val REPEATS = 15
+
+/**
+ * Times the microtask assignment queries on a seeded database at version 2 (no indexes), and again after each
+ * migration that indexes the tables. The median time of each query is logged under [TAG]. The statements are those of
+ * MicrotaskAssignmentDaoExtra and MicrotaskDaoExtra, run on the raw database, as Room only opens the latest version.
+ */
+@RunWith(AndroidJUnit4::class)
+class MicrotaskAssignmentQueryBenchmark {
+
+  @get:Rule
+  val helper =
+    MigrationTestHelper(
+      InstrumentationRegistry.getInstrumentation(),
+      KaryaDatabase::class.java.canonicalName,
+      FrameworkSQLiteOpenHelperFactory()
+    )
+
+  private val converters = Converters()
+
+  private fun status(status: MicrotaskAssignmentStatus) = converters.fromMicrotaskAssignmentStatustoString(status)!!
+
+  /** Name, statement and arguments of each timed query */
+  private val queries =
+    listOf(
+      Triple(
+        "getAssignmentsByStatus",
+        "SELECT * FROM microtask_assignment WHERE status=?",
+        arrayOf<Any>(status(MicrotaskAssignmentStatus.ASSIGNED))
+      ),
+      Triple(
+        "getCountByStatus",
+        "SELECT COUNT(*) FROM microtask_assignment where status=?",
+        arrayOf<Any>(status(MicrotaskAssignmentStatus.COMPLETED))
+      ),
+      Triple(
+        "getTotalCreditsEarned",
+        "SELECT SUM(credits) FROM microtask_assignment WHERE status=? AND worker_id=?",
+        arrayOf<Any>(status(MicrotaskAssignmentStatus.VERIFIED), WORKER_ID)
+      ),
+      Triple(
+        "getCountForTask",
+        "SELECT count(id) FROM microtask_assignment WHERE task_id=? AND status=?",
+        arrayOf<Any>("task-3", status(MicrotaskAssignmentStatus.ASSIGNED))
+      ),
+      Triple(
+        "getIDStatusesForTask",
+        "SELECT id, status FROM microtask_assignment WHERE task_id=? AND status IN (?) ORDER BY id",
+        arrayOf<Any>("task-3", status(MicrotaskAssignmentStatus.ASSIGNED))
+      ),
+      Triple(
+        "getStatusCountsForTask",
+        "SELECT task_id, status, count(id) AS count FROM microtask_assignment WHERE task_id=? GROUP BY status",
+        arrayOf<Any>("task-3")
+      ),
+      Triple(
+        "getStatusCounts",
+        "SELECT task_id, status, count(id) AS count FROM microtask_assignment GROUP BY task_id, status",
+        arrayOf<Any>()
+      ),
+      Triple(
+        "getSubmittedMicrotasksWithInputFiles",
+        "SELECT m.id FROM microtask AS m INNER JOIN microtask_assignment AS ma " +
+          "WHERE m.input_file_id IS NOT NULL AND ma.microtask_id = m.id AND ma.status=?",
+        arrayOf<Any>(status(MicrotaskAssignmentStatus.SUBMITTED))
+      ),
+    )
+
+  @Test
+  fun queries10k() {
+    benchmark(10_000)
+  }
+
+  @Test
+  fun queries50k() {
+    benchmark(50_000)
+  }
+
+  private fun benchmark(rows: Int) {
+    val name = "query-benchmark-$rows"
+    val v2 = helper.createDatabase(name, 2)
+    seed(v2, rows)
+    val (v2Times, v2Results) = time(v2)
+    v2.close()
+
+    val v3 = helper.runMigrationsAndValidate(name, 3, true, MIGRATION_2_3)
+    val (v3Times, v3Results) = time(v3)
+    v3.close()
+
+    val v4 = helper.runMigrationsAndValidate(name, 4, true, MIGRATION_3_4)
+    val (v4Times, v4Results) = time(v4)
+    v4.close()
+
+    // The indexes must not change the results
+    assertEquals(v2Results, v3Results)
+    assertEquals(v2Results, v4Results)
+
+    Log.i(TAG, "$rows assignments, median µs at version 2 / 3 / 4")
+    queries.forEachIndexed { i, (query, _, _) ->
+      Log.i(TAG, "$query: ${v2Times[i]} / ${v3Times[i]} / ${v4Times[i]}")
+    }
+  }
+
+  /**
+   * Seed [rows] microtasks with an assignment each, spread over [TASKS] tasks, with the mix of statuses of a device
+   * that has been in use for a while: most assignments are verified.
+   */
+  private fun seed(db: SupportSQLiteDatabase, rows: Int) {
+    val random = Random(1)
+    val statuses =
+      listOf(
+        MicrotaskAssignmentStatus.ASSIGNED to 5,
+        MicrotaskAssignmentStatus.COMPLETED to 3,
+        MicrotaskAssignmentStatus.SKIPPED to 2,
+        MicrotaskAssignmentStatus.SUBMITTED to 10,
+        MicrotaskAssignmentStatus.VERIFIED to 80,
+      )
+        .flatMap { (assignmentStatus, weight) -> List(weight) { status(assignmentStatus) } }
+
+    db.beginTransaction()
+    try {
+      for (task in 0 until TASKS) {
+        db.execSQL(
+          "INSERT INTO task (id, scenario_name, name, description, display_name, params, assignment_granularity, " +
+            "group_assignment_order, microtask_assignment_order, status, created_at, last_updated_at) " +
+            "VALUES (?, 'SPEECH_DATA', '', '', '', '{}', '\"MICROTASK\"', '\"EITHER\"', '\"EITHER\"', " +
+            "'\"SUBMITTED\"', '', '')",
+          arrayOf("task-$task")
+        )
+      }
+
+      val microtask =
+        db.compileStatement(
+          "INSERT INTO microtask (id, task_id, input, input_file_id, credits, output, created_at, last_updated_at) " +
+            "VALUES (?, ?, '{\"data\":{\"sentence\":\"\"}}', ?, 1.0, 'null', '', '')"
+        )
+      val assignment =
+        db.compileStatement(
+          "INSERT INTO microtask_assignment (id, local_id, box_id, microtask_id, task_id, worker_id, status, " +
+            "output, output_file_id, logs, credits, report, created_at, last_updated_at) " +
+            "VALUES (?, ?, '', ?, ?, ?, ?, '{\"data\":{},\"files\":{}}', ?, '{\"logs\":[]}', 1.0, 'null', '', '')"
+        )
+      for (i in 0 until rows) {
+        val microtaskId = "microtask-$i"
+        val taskId = "task-${i % TASKS}"
+        val status = statuses.random(random)
+
+        microtask.clearBindings()
+        microtask.bindString(1, microtaskId)
+        microtask.bindString(2, taskId)
+        if (i % 2 == 0) microtask.bindString(3, "input-$i") else microtask.bindNull(3)
+        microtask.executeInsert()
+
+        assignment.clearBindings()
+        assignment.bindString(1, "assignment-$i")
+        assignment.bindString(2, "$i")
+        assignment.bindString(3, microtaskId)
+        assignment.bindString(4, taskId)
+        assignment.bindString(5, WORKER_ID)
+        assignment.bindString(6, status)
+        if (i % 3 == 0) assignment.bindString(7, "output-$i") else assignment.bindNull(7)
+        assignment.executeInsert()
+      }
+      db.setTransactionSuccessful()
+    } finally {
+      db.endTransaction()
+    }
+  }
+
+  /** Median time in µs of each query, and the rows each of them returned, sorted as their order depends on the plan */
+  private fun time(db: SupportSQLiteDatabase): Pair<List<Long>, List<List<String>>> {
+    val times = mutableListOf<Long>()
+    val results = mutableListOf<List<String>>()
+    queries.forEach { (_, statement, args) ->
+      // The first run warms up the page cache
+      val rows = mutableListOf<String>()
+      db.query(statement, args).use { cursor ->
+        while (cursor.moveToNext()) {
+          rows.add((0 until cursor.columnCount).joinToString(",") { cursor.getString(it) ?: "null" })
+        }
+      }
+      results.add(rows.sorted())
+
+      val runs =
+        List(REPEATS) {
+          val start = System.nanoTime()
+          db.query(statement, args).use { cursor -> while (cursor.moveToNext()) {} }
+          (System.nanoTime() - start) / 1000
+        }
+      times.add(runs.sorted()[REPEATS / 2])
+    }
+    return Pair(times, results)
+  }
+}
@@ -0,0 +1,123 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.research.karya.utils
+
+import android.util.Log
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.platform.app.InstrumentationRegistry
+import java.io.File
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+import kotlin.math.PI
+import kotlin.math.sin
+import kotlin.random.Random
+import kotlinx.coroutines.runBlocking
+import org.junit.Assert.assertTrue
+import org.junit.Assume.assumeTrue
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+
+private const val TAG = "EncoderBenchmark"
+private const val RECORDING_SECONDS = 60
+private const val RUNS = 3
+
+/** Size of the buffers the recorder hands to the live encoder: 100 ms of audio at 44.1 kHz */
+private const val LIVE_WRITE_SIZE = 8820
+
+/**
+ * Times the encoding of one minute of recorded audio with each encoder profile. The median time of [RUNS] encodes is
+ * logged under [TAG], both for [RawAudioEncoder], which encodes a finished recording in the background, and for
+ * [LiveAudioEncoder], which is fed the audio while it is recorded. Profiles that the device cannot encode are skipped.
+ */
+@RunWith(AndroidJUnit4::class)
+class AudioEncoderBenchmark {
+
+  private lateinit var directory: File
+
+  @Before
+  fun setUp() {
+    directory = File(InstrumentationRegistry.getInstrumentation().targetContext.cacheDir, "encoder-benchmark")
+    directory.deleteRecursively()
+    directory.mkdirs()
+  }
+
+  @Test
+  fun aacLc() {
+    benchmark(EncoderProfile.DEFAULT)
+  }
+
+  @Test
+  fun aacHe() {
+    benchmark(EncoderProfile(AudioCodec.AAC_HE, 16000, 24000))
+  }
+
+  @Test
+  fun opus() {
+    benchmark(EncoderProfile(AudioCodec.OPUS, 16000, 16000))
+  }
+
+  private fun benchmark(profile: EncoderProfile) {
+    assumeTrue("$profile is not supported on this device", profile.isSupported())
+
+    val pcm = speechLikePcm(profile.sampleRate)
+    val wavFile = File(directory, "recording.wav")
+    wavFile.outputStream().use { output ->
+      output.write(wavHeader(pcm.size, profile.sampleRate))
+      output.write(pcm)
+    }
+    val outputFile = File(directory, "recording.${profile.extension}")
+
+    val encodeTimes =
+      List(RUNS) {
+        val start = System.nanoTime()
+        runBlocking { RawAudioEncoder(profile).encode(wavFile.path, outputFile.path) }
+        (System.nanoTime() - start) / 1_000_000
+      }
+    assertTrue(outputFile.length() > 0)
+
+    val liveTimes =
+      List(RUNS) {
+        val start = System.nanoTime()
+        val encoder = LiveAudioEncoder(outputFile.path, profile)
+        for (offset in pcm.indices step LIVE_WRITE_SIZE) {
+          encoder.write(pcm, offset, minOf(LIVE_WRITE_SIZE, pcm.size - offset))
+        }
+        assertTrue(encoder.finish())
+        (System.nanoTime() - start) / 1_000_000
+      }
+    assertTrue(outputFile.length() > 0)
+
+    Log.i(
+      TAG,
+      "$profile: ${encodeTimes.sorted()[RUNS / 2]} ms per minute in the background, " +
+        "${liveTimes.sorted()[RUNS / 2]} ms per minute live, ${outputFile.length() / 1024} KiB per minute"
+    )
+  }
+
+  /** [RECORDING_SECONDS] of 16-bit mono PCM: a tone that rises and falls like a voice, over some background noise */
+  private fun speechLikePcm(sampleRate: Int): ByteArray {
+    val random = Random(1)
+    val samples = RECORDING_SECONDS * sampleRate
+    val buffer = ByteBuffer.allocate(samples * 2).order(ByteOrder.LITTLE_ENDIAN)
+    for (i in 0 until samples) {
+      val t = i.toDouble() / sampleRate
+      val pitch = 150 + 50 * sin(2 * PI * 0.5 * t)
+      val envelope = if ((t * 2).toInt() % 3 == 2) 0.0 else 0.5
+      val sample = envelope * sin(2 * PI * pitch * t) + 0.01 * (random.nextDouble() - 0.5)
+      buffer.putShort((sample * Short.MAX_VALUE).toInt().toShort())
+    }
+    return buffer.array()
+  }
+
+  /** Canonical 44 byte header of a 16-bit mono wav file holding [dataSize] bytes of PCM */
+  private fun wavHeader(dataSize: Int, sampleRate: Int): ByteArray {
+    val header = ByteBuffer.allocate(44).order(ByteOrder.LITTLE_ENDIAN)
+    header.put("RIFF".toByteArray()).putInt(dataSize + 36).put("WAVE".toByteArray())
+    header.put("fmt ".toByteArray()).putInt(16).putShort(1).putShort(1)
+    header.putInt(sampleRate).putInt(sampleRate * 2).putShort(2).putShort(16)
+    header.put("data".toByteArray()).putInt(dataSize)
+    return header.array()
+  }
+}
@@ -0,0 +1,4 @@
+package com.microsoft.research.karya.data.exceptions
+
+/** The server rejected an upload with an error that retrying the same upload cannot fix */
+class UploadRejectedException(message: String) : Exception(message)
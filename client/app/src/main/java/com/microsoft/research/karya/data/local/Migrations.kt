@@ -0,0 +1,70 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+/** Migrations between versions of the local database */
+package com.microsoft.research.karya.data.local
+
+import androidx.room.migration.Migration
+import androidx.sqlite.db.SupportSQLiteDatabase
+
+/** Version 2 adds the resumable upload sessions */
+val MIGRATION_1_2 =
+  object : Migration(1, 2) {
+    override fun migrate(database: SupportSQLiteDatabase) {
+      database.execSQL(
+        "CREATE TABLE IF NOT EXISTS `upload_session` (" +
+          "`assignment_id` TEXT NOT NULL, `session_id` TEXT, `chunk_size` INTEGER NOT NULL, " +
+          "`uploaded_bytes` INTEGER NOT NULL, `failed_attempts` INTEGER NOT NULL, `created_at` TEXT NOT NULL, " +
+          "PRIMARY KEY(`assignment_id`))"
+      )
+    }
+  }
+
+/**
+ * Version 3 indexes the columns that the assignment and microtask queries filter and join on. Index names follow the
+ * Room convention so that the migrated schema validates against the entity definitions.
+ */
+val MIGRATION_2_3 =
+  object : Migration(2, 3) {
+    override fun migrate(database: SupportSQLiteDatabase) {
+      database.execSQL(
+        "CREATE INDEX IF NOT EXISTS `index_microtask_assignment_status` ON `microtask_assignment` (`status`)"
+      )
+      database.execSQL(
+        "CREATE INDEX IF NOT EXISTS `index_microtask_assignment_microtask_id_status` " +
+          "ON `microtask_assignment` (`microtask_id`, `status`)"
+      )
+      // Covers the credits sum, which otherwise looks up most rows of the table through the index
+      database.execSQL(
+        "CREATE INDEX IF NOT EXISTS `index_microtask_assignment_worker_id_status_credits` " +
+          "ON `microtask_assignment` (`worker_id`, `status`, `credits`)"
+      )
+      database.execSQL(
+        "CREATE INDEX IF NOT EXISTS `index_microtask_assignment_output_file_id` " +
+          "ON `microtask_assignment` (`output_file_id`)"
+      )
+      database.execSQL("CREATE INDEX IF NOT EXISTS `index_microtask_task_id` ON `microtask` (`task_id`)")
+      database.execSQL("CREATE INDEX IF NOT EXISTS `index_microtask_input_file_id` ON `microtask` (`input_file_id`)")
+    }
+  }
+
+/**
+ * Version 4 adds a covering index so that assignment queries can filter on the denormalized task_id column instead of
+ * going through the microtask table. Assignments saved without a task_id are filled in from their microtask.
+ */
+val MIGRATION_3_4 =
+  object : Migration(3, 4) {
+    override fun migrate(database: SupportSQLiteDatabase) {
+      database.execSQL(
+        "UPDATE `microtask_assignment` SET `task_id` = " +
+          "(SELECT `task_id` FROM `microtask` WHERE `microtask`.`id` = `microtask_assignment`.`microtask_id`) " +
+          "WHERE `task_id` = '' AND `microtask_id` IN (SELECT `id` FROM `microtask`)"
+      )
+      database.execSQL(
+        "CREATE INDEX IF NOT EXISTS `index_microtask_assignment_task_id_status_id` " +
+          "ON `microtask_assignment` (`task_id`, `status`, `id`)"
+      )
+    }
+  }
+
+val ALL_MIGRATIONS = arrayOf(MIGRATION_1_2, MIGRATION_2_3, MIGRATION_3_4)
@@ -21,6 +21,10 @@ interface MicroTaskDao : BasicDao<MicroTaskRecord> {
   @Query("SELECT * FROM microtask WHERE id == :id")
   suspend fun getById(id: String): MicroTaskRecord
 
+  /** Task of the microtask with the given [id], or null if there is no such microtask */
+  @Query("SELECT task_id FROM microtask WHERE id == :id")
+  suspend fun getTaskId(id: String): String?
+
   @Query("SELECT * FROM microtask WHERE task_id == :taskId")
   suspend fun getByTaskId(taskId: String): List<MicroTaskRecord>
 
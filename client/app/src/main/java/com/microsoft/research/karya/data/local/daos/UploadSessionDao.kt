@@ -0,0 +1,26 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.research.karya.data.local.daos
+
+import androidx.room.Dao
+import androidx.room.Query
+import androidx.room.Transaction
+import com.microsoft.research.karya.data.model.karya.UploadSessionRecord
+
+@Dao
+interface UploadSessionDao : BasicDao<UploadSessionRecord> {
+
+  @Query("SELECT * FROM upload_session WHERE assignment_id == :assignmentId")
+  suspend fun getById(assignmentId: String): UploadSessionRecord?
+
+  @Query("DELETE FROM upload_session WHERE assignment_id == :assignmentId")
+  suspend fun deleteById(assignmentId: String)
+
+  /** Upsert a [record] in the table */
+  @Transaction
+  suspend fun upsert(record: UploadSessionRecord) {
+    insertForUpsert(record)
+    updateForUpsert(record)
+  }
+}
@@ -0,0 +1,14 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.research.karya.data.local.daosExtra
+
+import androidx.room.Dao
+import androidx.room.Query
+
+@Dao
+interface KaryaFileDaoExtra {
+  /** Get the checksum of the karya file with the given [id], if the record is available locally */
+  @Query("SELECT checksum FROM karya_file WHERE id=:id")
+  suspend fun getChecksum(id: String): String?
+}
@@ -5,10 +5,17 @@ package com.microsoft.research.karya.data.local.daosExtra
 
 import androidx.room.Dao
 import androidx.room.Query
+import androidx.room.Transaction
 import com.google.gson.JsonElement
 import com.google.gson.JsonNull
 import com.microsoft.research.karya.data.model.karya.MicroTaskAssignmentRecord
 import com.microsoft.research.karya.data.model.karya.enums.MicrotaskAssignmentStatus
+import com.microsoft.research.karya.data.model.karya.modelsExtra.AssignmentIDStatus
+import com.microsoft.research.karya.data.model.karya.modelsExtra.TaskStatusCount
+import kotlinx.coroutines.flow.Flow
+
+/** Number of IDs bound per query. SQLite allows at most 999 variables in a statement. */
+private const val MAX_IDS_PER_QUERY = 900
 
 @Dao
 interface MicrotaskAssignmentDaoExtra {
@@ -35,20 +42,36 @@ interface MicrotaskAssignmentDaoExtra {
   }
 
   @Query(
-    "SELECT count(id) FROM microtask_assignment WHERE " +
-      "status=:status AND " +
-      "microtask_id in (SELECT id from microtask WHERE task_id=:taskId)"
+    "SELECT count(id) FROM microtask_assignment WHERE task_id=:taskId AND status=:status"
   )
   suspend fun getCountForTask(taskId: String, status: MicrotaskAssignmentStatus): Int
 
+  /** Query to get the number of assignments in each status, for every task */
+  @Query(
+    "SELECT task_id, status, count(id) AS count FROM microtask_assignment GROUP BY task_id, status"
+  )
+  fun getStatusCountsFlow(): Flow<List<TaskStatusCount>>
+
+  /** Query to get the number of assignments in each status, for every task */
+  @Query(
+    "SELECT task_id, status, count(id) AS count FROM microtask_assignment GROUP BY task_id, status"
+  )
+  suspend fun getStatusCounts(): List<TaskStatusCount>
+
+  /** Query to get the number of assignments in each status for a given [taskId] */
+  @Query(
+    "SELECT task_id, status, count(id) AS count FROM microtask_assignment " +
+      "WHERE task_id=:taskId GROUP BY status"
+  )
+  suspend fun getStatusCountsForTask(taskId: String): List<TaskStatusCount>
+
   /**
    * Query to get all the microtask assignment IDs for a given [taskId] and with a given list of
    * [statuses]
    */
   @Query(
     "SELECT id FROM microtask_assignment WHERE " +
-      "status IN (:statuses) AND " +
-      "microtask_id IN (SELECT id FROM microtask WHERE task_id=:taskId) " +
+      "task_id=:taskId AND status IN (:statuses) " +
       "ORDER BY id"
   )
   suspend fun getIDsForTask(
@@ -56,19 +79,41 @@ interface MicrotaskAssignmentDaoExtra {
     statuses: List<MicrotaskAssignmentStatus>,
   ): List<String>
 
+  /**
+   * Query to get the IDs and statuses of all the microtask assignments for a given [taskId] and
+   * with a given list of [statuses]. Served entirely from the (task_id, status, id) index.
+   */
+  @Query(
+    "SELECT id, status FROM microtask_assignment WHERE " +
+      "task_id=:taskId AND status IN (:statuses) " +
+      "ORDER BY id"
+  )
+  suspend fun getIDStatusesForTask(
+    taskId: String,
+    statuses: List<MicrotaskAssignmentStatus>,
+  ): List<AssignmentIDStatus>
+
   /**
    * Query to get all unsubmitted microtask assignments for a given [taskId]. [includeCompleted]
    * specifies if completed assignments that are not yet submitted should be included in the
    * returned list.
    */
   suspend fun getUnsubmittedIDsForTask(taskId: String, includeCompleted: Boolean): List<String> {
+    return getUnsubmittedIDStatusesForTask(taskId, includeCompleted).map { it.id }
+  }
+
+  /** Same as [getUnsubmittedIDsForTask], but also returns the status of each assignment */
+  suspend fun getUnsubmittedIDStatusesForTask(
+    taskId: String,
+    includeCompleted: Boolean
+  ): List<AssignmentIDStatus> {
     return if (includeCompleted) {
-      getIDsForTask(
+      getIDStatusesForTask(
         taskId,
         arrayListOf(MicrotaskAssignmentStatus.ASSIGNED, MicrotaskAssignmentStatus.COMPLETED)
       )
     } else {
-      getIDsForTask(taskId, arrayListOf(MicrotaskAssignmentStatus.ASSIGNED))
+      getIDStatusesForTask(taskId, arrayListOf(MicrotaskAssignmentStatus.ASSIGNED))
     }
   }
 
@@ -132,6 +177,16 @@ interface MicrotaskAssignmentDaoExtra {
     status: MicrotaskAssignmentStatus = MicrotaskAssignmentStatus.SUBMITTED,
   )
 
+  /** Query to set the [status] of the assignments with the given [ids]. Use the batched wrapper below. */
+  @Query("UPDATE microtask_assignment SET status=:status WHERE id IN (:ids)")
+  suspend fun setStatusByIds(ids: List<String>, status: MicrotaskAssignmentStatus)
+
+  /** Mark all the assignments with the given [ids] as submitted, in a single transaction */
+  @Transaction
+  suspend fun markAllSubmitted(ids: List<String>) {
+    ids.chunked(MAX_IDS_PER_QUERY).forEach { setStatusByIds(it, MicrotaskAssignmentStatus.SUBMITTED) }
+  }
+
   /** Query to get list of assignments whose output karya files are in the server */
   @Query(
     "SELECT ma.* FROM microtask_assignment AS ma INNER JOIN karya_file AS kf ON ma.output_file_id = kf.id WHERE kf.in_box=:in_box"
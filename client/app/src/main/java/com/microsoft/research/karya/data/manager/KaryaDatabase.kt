@@ -8,8 +8,10 @@ import androidx.room.Database
 import androidx.room.Room
 import androidx.room.RoomDatabase
 import androidx.room.TypeConverters
+import com.microsoft.research.karya.data.local.ALL_MIGRATIONS
 import com.microsoft.research.karya.data.local.Converters
 import com.microsoft.research.karya.data.local.daos.*
+import com.microsoft.research.karya.data.local.daosExtra.KaryaFileDaoExtra
 import com.microsoft.research.karya.data.local.daosExtra.MicrotaskAssignmentDaoExtra
 import com.microsoft.research.karya.data.local.daosExtra.MicrotaskDaoExtra
 import com.microsoft.research.karya.data.model.karya.*
@@ -22,8 +24,9 @@ import com.microsoft.research.karya.data.model.karya.*
     TaskRecord::class,
     MicroTaskRecord::class,
     MicroTaskAssignmentRecord::class,
+    UploadSessionRecord::class,
   ],
-  version = 1,
+  version = 4,
   //  autoMigrations = [
   //    AutoMigration (from = 1, to = 2)
   //  ]
@@ -37,7 +40,9 @@ abstract class KaryaDatabase : RoomDatabase() {
 
   abstract fun microtaskAssignmentDaoExtra(): MicrotaskAssignmentDaoExtra
   abstract fun microtaskDaoExtra(): MicrotaskDaoExtra
+  abstract fun karyaFileDaoExtra(): KaryaFileDaoExtra
   abstract fun karyaFileDao(): KaryaFileDao
+  abstract fun uploadSessionDao(): UploadSessionDao
 
   companion object {
     private var INSTANCE: KaryaDatabase? = null
@@ -47,6 +52,7 @@ abstract class KaryaDatabase : RoomDatabase() {
         synchronized(KaryaDatabase::class) {
           INSTANCE =
             Room.databaseBuilder(context.applicationContext, KaryaDatabase::class.java, "karya.db")
+              .addMigrations(*ALL_MIGRATIONS)
               .build()
         }
       }
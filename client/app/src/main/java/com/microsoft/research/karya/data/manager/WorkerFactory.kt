@@ -9,6 +9,7 @@ import com.microsoft.research.karya.data.repo.KaryaFileRepository
 import com.microsoft.research.karya.data.repo.MicroTaskRepository
 import com.microsoft.research.karya.injection.qualifier.FilesDir
 import com.microsoft.research.karya.ui.dashboard.DashboardSyncWorker
+import com.microsoft.research.karya.ui.scenarios.speechData.EncodeRecordingWorker
 
 class WorkerFactory(
   private val assignmentRepository: AssignmentRepository,
@@ -35,6 +36,7 @@ class WorkerFactory(
           fileDirPath,
           authManager
         )
+      EncodeRecordingWorker::class.java.name -> EncodeRecordingWorker(appContext, workerParameters)
       else ->
         // Return null, so that the base class can delegate to the default WorkerFactory.
         null
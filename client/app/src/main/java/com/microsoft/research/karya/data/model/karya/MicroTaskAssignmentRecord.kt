@@ -4,11 +4,22 @@
 package com.microsoft.research.karya.data.model.karya
 
 import androidx.room.Entity
+import androidx.room.Index
 import androidx.room.PrimaryKey
 import com.google.gson.JsonElement
 import com.microsoft.research.karya.data.model.karya.enums.MicrotaskAssignmentStatus
 
-@Entity(tableName = "microtask_assignment")
+@Entity(
+  tableName = "microtask_assignment",
+  indices =
+    [
+      Index(value = ["status"]),
+      Index(value = ["task_id", "status", "id"]),
+      Index(value = ["microtask_id", "status"]),
+      Index(value = ["worker_id", "status", "credits"]),
+      Index(value = ["output_file_id"]),
+    ]
+)
 data class MicroTaskAssignmentRecord(
   @PrimaryKey var id: String,
   var local_id: String,
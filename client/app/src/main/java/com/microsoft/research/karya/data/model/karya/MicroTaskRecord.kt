@@ -4,11 +4,12 @@
 package com.microsoft.research.karya.data.model.karya
 
 import androidx.room.Entity
+import androidx.room.Index
 import androidx.room.PrimaryKey
 import com.google.gson.JsonElement
 import com.google.gson.annotations.SerializedName
 
-@Entity(tableName = "microtask")
+@Entity(tableName = "microtask", indices = [Index(value = ["task_id"]), Index(value = ["input_file_id"])])
 data class MicroTaskRecord(
   @PrimaryKey var id: String,
   @SerializedName("task_id") var task_id: String,
@@ -0,0 +1,21 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.research.karya.data.model.karya
+
+import androidx.room.Entity
+import androidx.room.PrimaryKey
+
+/**
+ * Upload state of the output file of an assignment: its resumable upload session, if one was created,
+ * and the number of syncs in which the upload failed
+ */
+@Entity(tableName = "upload_session")
+data class UploadSessionRecord(
+  @PrimaryKey var assignment_id: String,
+  var session_id: String?,
+  var chunk_size: Int,
+  var uploaded_bytes: Long,
+  var failed_attempts: Int,
+  var created_at: String,
+)
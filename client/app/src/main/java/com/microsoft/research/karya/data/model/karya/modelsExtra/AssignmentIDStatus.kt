@@ -0,0 +1,9 @@
+package com.microsoft.research.karya.data.model.karya.modelsExtra
+
+import com.microsoft.research.karya.data.model.karya.enums.MicrotaskAssignmentStatus
+
+/** ID and status of an assignment, read together when a task is opened */
+data class AssignmentIDStatus(
+  val id: String,
+  val status: MicrotaskAssignmentStatus,
+)
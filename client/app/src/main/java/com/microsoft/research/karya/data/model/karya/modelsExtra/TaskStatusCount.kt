@@ -0,0 +1,10 @@
+package com.microsoft.research.karya.data.model.karya.modelsExtra
+
+import com.microsoft.research.karya.data.model.karya.enums.MicrotaskAssignmentStatus
+
+/** Number of assignments of a task in a particular status */
+data class TaskStatusCount(
+  val task_id: String,
+  val status: MicrotaskAssignmentStatus,
+  val count: Int,
+)
@@ -0,0 +1,61 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.research.karya.data.remote.request
+
+import com.google.gson.Gson
+import com.microsoft.research.karya.utils.FileUtils
+import okhttp3.MediaType
+import okhttp3.MediaType.Companion.toMediaTypeOrNull
+import okhttp3.RequestBody
+import okio.BufferedSink
+import java.io.File
+import java.io.FileNotFoundException
+
+/**
+ * Request body that builds a GZipped tar ball of the files at [filePaths] while it is being written
+ * to the socket, so the tar ball is never stored on the device. The MD5 checksum of the sent bytes
+ * is available in [md5sum] once the body has been written.
+ */
+class TarBallRequestBody(
+  private val filePaths: List<String>,
+  private val fileNames: List<String>,
+) : RequestBody() {
+
+  init {
+    // Fail early, before a request is started, if any of the files are missing
+    filePaths.forEach { if (!File(it).exists()) throw FileNotFoundException(it) }
+  }
+
+  /** Total size of the files in the tar ball, before compression */
+  val rawSize: Long = filePaths.sumOf { File(it).length() }
+
+  var md5sum: String? = null
+    private set
+
+  override fun contentType(): MediaType? = "application/tgz".toMediaTypeOrNull()
+
+  // The compressed size is not known up front. The request is sent with chunked encoding.
+  override fun contentLength(): Long = -1L
+
+  override fun writeTo(sink: BufferedSink) {
+    md5sum = null
+    md5sum = FileUtils.writeTarBall(sink.outputStream(), filePaths, fileNames)
+  }
+}
+
+/**
+ * Request body with JSON content that is only serialized when the body is written. Used for
+ * multipart fields that depend on parts written before them, such as the checksum of a
+ * [TarBallRequestBody].
+ */
+class DeferredJsonRequestBody(private val content: () -> Any) : RequestBody() {
+
+  override fun contentType(): MediaType? = null
+
+  override fun contentLength(): Long = -1L
+
+  override fun writeTo(sink: BufferedSink) {
+    sink.writeUtf8(Gson().toJson(content()))
+  }
+}
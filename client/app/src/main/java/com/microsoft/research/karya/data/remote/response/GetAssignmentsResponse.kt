@@ -1,6 +1,7 @@
 package com.microsoft.research.karya.data.remote.response
 
 import com.google.gson.annotations.SerializedName
+import com.microsoft.research.karya.data.model.karya.KaryaFileRecord
 import com.microsoft.research.karya.data.model.karya.MicroTaskAssignmentRecord
 import com.microsoft.research.karya.data.model.karya.MicroTaskRecord
 import com.microsoft.research.karya.data.model.karya.TaskRecord
@@ -8,5 +9,6 @@ import com.microsoft.research.karya.data.model.karya.TaskRecord
 data class GetAssignmentsResponse(
   @SerializedName("tasks") val tasks: List<TaskRecord>,
   @SerializedName("microtasks") val microTasks: List<MicroTaskRecord>,
-  @SerializedName("assignments") val assignments: List<MicroTaskAssignmentRecord>
+  @SerializedName("assignments") val assignments: List<MicroTaskAssignmentRecord>,
+  @SerializedName("files") val files: List<KaryaFileRecord>?,
 )
@@ -0,0 +1,10 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.research.karya.data.remote.response
+
+data class UploadSessionResponse(
+  var id: String,
+  var offset: Long,
+  var chunk_size: Int,
+)
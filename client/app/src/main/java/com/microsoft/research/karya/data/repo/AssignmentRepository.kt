@@ -1,21 +1,59 @@
 package com.microsoft.research.karya.data.repo
 
 import com.google.gson.JsonElement
+import com.microsoft.research.karya.data.exceptions.UploadRejectedException
+import com.microsoft.research.karya.data.local.daos.KaryaFileDao
 import com.microsoft.research.karya.data.local.daos.MicroTaskAssignmentDao
 import com.microsoft.research.karya.data.local.daos.MicroTaskDao
 import com.microsoft.research.karya.data.local.daos.TaskDao
+import com.microsoft.research.karya.data.local.daos.UploadSessionDao
 import com.microsoft.research.karya.data.local.daosExtra.MicrotaskAssignmentDaoExtra
+import com.microsoft.research.karya.data.model.karya.ChecksumAlgorithm
+import com.microsoft.research.karya.data.model.karya.KaryaFileRecord
 import com.microsoft.research.karya.data.model.karya.MicroTaskAssignmentRecord
 import com.microsoft.research.karya.data.model.karya.MicroTaskRecord
 import com.microsoft.research.karya.data.model.karya.TaskRecord
+import com.microsoft.research.karya.data.model.karya.UploadSessionRecord
+import com.microsoft.research.karya.data.model.karya.modelsExtra.AssignmentIDStatus
+import com.microsoft.research.karya.data.remote.request.TarBallRequestBody
+import com.microsoft.research.karya.data.remote.request.UploadFileRequest
 import com.microsoft.research.karya.data.service.MicroTaskAssignmentAPI
+import com.microsoft.research.karya.utils.DateUtils
 import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.coroutineScope
 import kotlinx.coroutines.flow.flow
+import kotlinx.coroutines.flow.flowOn
+import kotlinx.coroutines.launch
 import kotlinx.coroutines.withContext
+import okhttp3.MediaType.Companion.toMediaTypeOrNull
 import okhttp3.MultipartBody
+import okhttp3.RequestBody.Companion.toRequestBody
+import okhttp3.ResponseBody
+import okio.Buffer
+import okio.Pipe
+import okio.buffer
+import retrofit2.Response
+import java.io.IOException
 import javax.inject.Inject
 
 private const val INITIAL_TIME = "1970-01-01T00:00:00Z"
+private const val MAX_UPLOAD_ATTEMPTS = 3
+private val OCTET_STREAM = "application/octet-stream".toMediaTypeOrNull()
+
+/**
+ * Client errors of uploads that can go away on a retry: an expired token, an expired upload session, a
+ * timeout, an offset conflict between chunks and rate limiting. Other client errors reject the upload.
+ */
+private val RETRYABLE_CLIENT_ERRORS = setOf(401, 404, 408, 409, 429)
+
+/** Can retrying the same upload not fix an HTTP error [code]? */
+private fun isUploadRejected(code: Int) = code in 400..499 && code !in RETRYABLE_CLIENT_ERRORS
+
+/** Fail an upload request that got the unsuccessful [response] */
+private fun uploadFailed(response: Response<*>, message: String): Nothing {
+  if (isUploadRejected(response.code())) throw UploadRejectedException("$message: HTTP ${response.code()}")
+  error(message)
+}
 
 class AssignmentRepository
 @Inject
@@ -25,6 +63,8 @@ constructor(
   private val assignmentDaoExtra: MicrotaskAssignmentDaoExtra,
   private val microTaskDao: MicroTaskDao,
   private val taskDao: TaskDao,
+  private val uploadSessionDao: UploadSessionDao,
+  private val karyaFileDao: KaryaFileDao,
 ) {
 
   fun getNewAssignments(idToken: String, from: String) = flow {
@@ -42,7 +82,9 @@ constructor(
     if (assignmentResponse != null) {
       saveTasks(assignmentResponse.tasks)
       saveMicroTasks(assignmentResponse.microTasks)
-      saveMicroTaskAssignments(assignmentResponse.assignments)
+      saveMicroTaskAssignments(assignmentResponse.assignments, assignmentResponse.microTasks)
+      // Older box servers do not send the input file records
+      assignmentResponse.files?.let { saveKaryaFiles(it) }
 
       emit(assignmentResponse)
     } else {
@@ -111,16 +153,19 @@ constructor(
   fun submitAssignmentOutputFile(
     idToken: String,
     assignmentId: String,
+    file: MultipartBody.Part,
     json: MultipartBody.Part,
-    file: MultipartBody.Part
   ) = flow {
-    val response = assignmentAPI.submitAssignmentOutputFile(idToken, assignmentId, json, file)
+    val response = assignmentAPI.submitAssignmentOutputFile(idToken, assignmentId, file, json)
     val responseBody = response.body()
 
     if (!response.isSuccessful) {
-      error("Failed to upload file")
+      uploadFailed(response, "Failed to upload file")
     }
 
+    // Forget the failed attempts of earlier syncs
+    uploadSessionDao.deleteById(assignmentId)
+
     if (responseBody != null) {
       emit(responseBody)
     } else {
@@ -128,18 +173,213 @@ constructor(
     }
   }
 
-  fun getInputFile(idToken: String, assignmentId: String) = flow {
-    val response = assignmentAPI.getInputFile(idToken, assignmentId)
+  /**
+   * Upload the output [tarBall] of an assignment in chunks through a resumable upload session. The
+   * session and the offset acknowledged by the server are stored locally, so an interrupted upload
+   * resumes where it stopped, within this call and across sync runs. Throws an
+   * [UploadRejectedException] if the server rejects the upload for good.
+   */
+  fun submitAssignmentOutputFileResumable(
+    idToken: String,
+    assignmentId: String,
+    tarBall: TarBallRequestBody,
+    containerName: String,
+    name: String,
+  ) =
+    flow {
+      var session = getOutputFileUploadSession(idToken, assignmentId)
+
+      var attempt = 1
+      while (true) {
+        try {
+          session = uploadOutputFileChunks(idToken, session, tarBall)
+          break
+        } catch (e: IOException) {
+          if (attempt == MAX_UPLOAD_ATTEMPTS) throw e
+          attempt += 1
+          // Resume from the offset acknowledged by the server
+          session = getOutputFileUploadSession(idToken, assignmentId)
+        }
+      }
+
+      val md5sum = checkNotNull(tarBall.md5sum) { "Tarball was not written before its checksum" }
+      val request = UploadFileRequest(containerName, name, ChecksumAlgorithm.MD5.toString(), md5sum)
+      val response = assignmentAPI.completeOutputFileUpload(idToken, assignmentId, session.requireSessionId(), request)
+      val responseBody = response.body()
+
+      if (!response.isSuccessful) {
+        // The server discards sessions whose checksum does not match
+        if (response.code() == 400) uploadSessionDao.deleteById(assignmentId)
+        uploadFailed(response, "Failed to upload file")
+      }
+
+      uploadSessionDao.deleteById(assignmentId)
+
+      if (responseBody != null) {
+        emit(responseBody)
+      } else {
+        error("Request failed, response body was null")
+      }
+    }
+      .flowOn(Dispatchers.IO)
+
+  /**
+   * Get the upload session for the output file of an assignment, along with the offset acknowledged
+   * by the server. A new session is created if there is none, or if the server no longer has it.
+   */
+  private suspend fun getOutputFileUploadSession(idToken: String, assignmentId: String): UploadSessionRecord {
+    val localSession = uploadSessionDao.getById(assignmentId)
+    val localSessionId = localSession?.session_id
+
+    if (localSession != null && localSessionId != null) {
+      val response = assignmentAPI.getOutputFileUpload(idToken, assignmentId, localSessionId)
+      val responseBody = response.body()
+
+      if (response.isSuccessful && responseBody != null) {
+        val session = localSession.copy(chunk_size = responseBody.chunk_size, uploaded_bytes = responseBody.offset)
+        uploadSessionDao.upsert(session)
+        return session
+      }
+
+      if (response.code() != 404) {
+        error("Failed to get upload session")
+      }
+    }
+
+    val response = assignmentAPI.createOutputFileUpload(idToken, assignmentId)
+    val responseBody = response.body()
 
     if (!response.isSuccessful) {
-      error("Failed to get file")
+      uploadFailed(response, "Failed to create upload session")
+    }
+
+    if (responseBody == null) {
+      error("Failed to create upload session")
+    }
+
+    val session =
+      UploadSessionRecord(
+        assignmentId,
+        responseBody.id,
+        responseBody.chunk_size,
+        responseBody.offset,
+        localSession?.failed_attempts ?: 0,
+        DateUtils.getCurrentDate()
+      )
+    uploadSessionDao.upsert(session)
+    return session
+  }
+
+  /**
+   * Send the [tarBall] in chunks, starting at the offset acknowledged for the [session]. The tarball
+   * stream is regenerated and the bytes the server already has are skipped. The stream is the same
+   * for unchanged files, and the checksum check at completion catches the case where it is not.
+   */
+  private suspend fun uploadOutputFileChunks(
+    idToken: String,
+    session: UploadSessionRecord,
+    tarBall: TarBallRequestBody,
+  ): UploadSessionRecord = coroutineScope {
+    val sessionId = session.requireSessionId()
+    val pipe = Pipe(session.chunk_size.toLong())
+
+    val writer = launch(Dispatchers.IO) { pipe.sink.buffer().use { sink -> tarBall.writeTo(sink) } }
+
+    var current = session
+    pipe.source.buffer().use { source ->
+      source.skip(current.uploaded_bytes)
+
+      while (true) {
+        val chunk = Buffer()
+        while (chunk.size < current.chunk_size) {
+          if (source.read(chunk, current.chunk_size - chunk.size) == -1L) break
+        }
+        if (chunk.size == 0L) break
+
+        val expectedOffset = current.uploaded_bytes + chunk.size
+        val response =
+          assignmentAPI.uploadOutputFileChunk(
+            idToken,
+            current.assignment_id,
+            sessionId,
+            current.uploaded_bytes,
+            chunk.readByteArray().toRequestBody(OCTET_STREAM)
+          )
+        val responseBody = response.body()
+
+        if (!response.isSuccessful || responseBody == null) {
+          if (isUploadRejected(response.code())) {
+            throw UploadRejectedException("Failed to upload chunk: HTTP ${response.code()}")
+          }
+          throw IOException("Failed to upload chunk")
+        }
+
+        current = current.copy(uploaded_bytes = responseBody.offset)
+        uploadSessionDao.upsert(current)
+
+        if (responseBody.offset != expectedOffset) {
+          throw IOException("Chunk was not fully received")
+        }
+      }
     }
 
-    emit(response)
+    writer.join()
+    current
+  }
+
+  private fun UploadSessionRecord.requireSessionId(): String =
+    checkNotNull(session_id) { "Upload session of $assignment_id was not created" }
+
+  suspend fun hasOutputFileUploadSession(assignmentId: String): Boolean {
+    return uploadSessionDao.getById(assignmentId)?.session_id != null
+  }
+
+  /**
+   * Record that the upload of the output file of an assignment failed in this sync. Returns the number
+   * of syncs in which it failed so far.
+   */
+  suspend fun recordFailedOutputFileUpload(assignmentId: String): Int {
+    val record =
+      uploadSessionDao.getById(assignmentId)
+        ?: UploadSessionRecord(assignmentId, null, 0, 0, 0, DateUtils.getCurrentDate())
+    val failed = record.copy(failed_attempts = record.failed_attempts + 1)
+    uploadSessionDao.upsert(failed)
+    return failed.failed_attempts
+  }
+
+  /** Drop the upload session and failed attempts of the output file of an assignment */
+  suspend fun discardOutputFileUpload(assignmentId: String) {
+    uploadSessionDao.deleteById(assignmentId)
+  }
+
+  /** Request the input file of an assignment, optionally only the given [range] of it */
+  suspend fun getInputFile(idToken: String, assignmentId: String, range: String? = null): Response<ResponseBody> {
+    return assignmentAPI.getInputFile(idToken, assignmentId, range)
   }
 
-  private suspend fun saveMicroTaskAssignments(assignments: List<MicroTaskAssignmentRecord>) {
-    assignmentDao.upsert(assignments)
+  /**
+   * Save [assignments] to the local DB. Assignment queries filter on the denormalized task_id column,
+   * so any assignment that arrives without one gets it from its microtask, looked up first among
+   * [microTasks] of the same response and then in the local DB. An assignment whose microtask is in
+   * neither is left out rather than failing the sync, as it could not be listed under its task.
+   */
+  private suspend fun saveMicroTaskAssignments(
+    assignments: List<MicroTaskAssignmentRecord>,
+    microTasks: List<MicroTaskRecord> = listOf(),
+  ) {
+    val taskIdByMicrotask = microTasks.associate { it.id to it.task_id }
+    val resolvedAssignments =
+      assignments.filter { assignment ->
+        // Gson does not respect Kotlin nullability, so older servers may leave task_id null
+        @Suppress("SENSELESS_COMPARISON")
+        if (assignment.task_id != null && assignment.task_id.isNotEmpty()) return@filter true
+
+        val taskId = taskIdByMicrotask[assignment.microtask_id] ?: microTaskDao.getTaskId(assignment.microtask_id)
+        if (taskId == null) return@filter false
+        assignment.task_id = taskId
+        true
+      }
+    assignmentDao.upsert(resolvedAssignments)
   }
 
   private suspend fun saveMicroTasks(microTasks: List<MicroTaskRecord>) {
@@ -150,6 +390,10 @@ constructor(
     taskDao.upsert(tasks)
   }
 
+  private suspend fun saveKaryaFiles(files: List<KaryaFileRecord>) {
+    karyaFileDao.upsert(files)
+  }
+
   suspend fun getAssignmentById(assignmentId: String): MicroTaskAssignmentRecord {
     return assignmentDao.getById(assignmentId)
   }
@@ -188,7 +432,7 @@ constructor(
   }
 
   suspend fun markMicrotaskAssignmentsSubmitted(assignmentIds: List<String>) {
-    assignmentIds.forEach { assignmentId -> assignmentDaoExtra.markSubmitted(assignmentId) }
+    assignmentDaoExtra.markAllSubmitted(assignmentIds)
   }
 
   suspend fun getIncompleteAssignments(): List<MicroTaskAssignmentRecord> {
@@ -215,6 +459,10 @@ constructor(
     return assignmentDaoExtra.getUnsubmittedIDsForTask(task_id, includeCompleted)
   }
 
+  suspend fun getUnsubmittedIDStatusesForTask(task_id: String, includeCompleted: Boolean): List<AssignmentIDStatus> {
+    return assignmentDaoExtra.getUnsubmittedIDStatusesForTask(task_id, includeCompleted)
+  }
+
   suspend fun getLocalVerifiedAssignments(task_id: String): List<String> {
     return assignmentDaoExtra.getLocalVerifiedAssignments(task_id)
   }
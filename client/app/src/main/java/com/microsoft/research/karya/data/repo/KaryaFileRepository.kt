@@ -1,6 +1,7 @@
 package com.microsoft.research.karya.data.repo
 
 import com.microsoft.research.karya.data.local.daos.KaryaFileDao
+import com.microsoft.research.karya.data.local.daosExtra.KaryaFileDaoExtra
 import com.microsoft.research.karya.data.model.karya.KaryaFileRecord
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.withContext
@@ -8,8 +9,15 @@ import javax.inject.Inject
 
 class KaryaFileRepository
 @Inject
-constructor(private val karyaFileDao: KaryaFileDao) {
+constructor(
+  private val karyaFileDao: KaryaFileDao,
+  private val karyaFileDaoExtra: KaryaFileDaoExtra,
+) {
   suspend fun insertKaryaFile(karyaFileRecord: KaryaFileRecord) {
     withContext(Dispatchers.IO) { karyaFileDao.insert(karyaFileRecord) }
   }
+
+  suspend fun getChecksum(karyaFileId: String): String? {
+    return karyaFileDaoExtra.getChecksum(karyaFileId)
+  }
 }
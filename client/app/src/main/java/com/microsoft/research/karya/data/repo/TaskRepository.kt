@@ -1,18 +1,20 @@
 package com.microsoft.research.karya.data.repo
 
-import com.microsoft.research.karya.data.local.daos.MicroTaskAssignmentDao
 import com.microsoft.research.karya.data.local.daos.TaskDao
+import com.microsoft.research.karya.data.local.daosExtra.MicrotaskAssignmentDaoExtra
 import com.microsoft.research.karya.data.model.karya.TaskRecord
 import com.microsoft.research.karya.data.model.karya.enums.MicrotaskAssignmentStatus
 import com.microsoft.research.karya.data.model.karya.modelsExtra.TaskStatus
+import com.microsoft.research.karya.data.model.karya.modelsExtra.TaskStatusCount
 import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.map
 import javax.inject.Inject
 
 class TaskRepository
 @Inject
 constructor(
   private val taskDao: TaskDao,
-  private val microTaskAssignmentDao: MicroTaskAssignmentDao,
+  private val microTaskAssignmentDaoExtra: MicrotaskAssignmentDaoExtra,
 ) {
   suspend fun getById(taskId: String): TaskRecord {
     return taskDao.getById(taskId)
@@ -21,17 +23,36 @@ constructor(
   fun getAllTasksFlow(): Flow<List<TaskRecord>> = taskDao.getAllAsFlow()
 
   suspend fun getTaskStatus(taskId: String): TaskStatus {
-    val available =
-      microTaskAssignmentDao.getCountForTask(taskId, MicrotaskAssignmentStatus.ASSIGNED)
-    val completed =
-      microTaskAssignmentDao.getCountForTask(taskId, MicrotaskAssignmentStatus.COMPLETED)
-    val submitted =
-      microTaskAssignmentDao.getCountForTask(taskId, MicrotaskAssignmentStatus.SUBMITTED)
-    val verified =
-      microTaskAssignmentDao.getCountForTask(taskId, MicrotaskAssignmentStatus.VERIFIED)
-    val skipped = microTaskAssignmentDao.getCountForTask(taskId, MicrotaskAssignmentStatus.SKIPPED)
-
-    return TaskStatus(available, completed, submitted, verified, skipped)
+    return toTaskStatus(microTaskAssignmentDaoExtra.getStatusCountsForTask(taskId))
+  }
+
+  /** Get the [TaskStatus] of every task that has assignments, keyed by task ID */
+  suspend fun getTaskStatuses(): Map<String, TaskStatus> {
+    return toTaskStatuses(microTaskAssignmentDaoExtra.getStatusCounts())
+  }
+
+  /**
+   * Hot flow of the [TaskStatus] of every task that has assignments, keyed by task ID. All the
+   * statuses are computed from a single query whenever the assignments change.
+   */
+  fun getTaskStatusesFlow(): Flow<Map<String, TaskStatus>> =
+    microTaskAssignmentDaoExtra.getStatusCountsFlow().map { counts -> toTaskStatuses(counts) }
+
+  private fun toTaskStatuses(counts: List<TaskStatusCount>): Map<String, TaskStatus> {
+    return counts.groupBy { it.task_id }.mapValues { (_, taskCounts) -> toTaskStatus(taskCounts) }
+  }
+
+  private fun toTaskStatus(counts: List<TaskStatusCount>): TaskStatus {
+    val countByStatus = counts.associate { it.status to it.count }
+    fun count(status: MicrotaskAssignmentStatus) = countByStatus[status] ?: 0
+
+    return TaskStatus(
+      count(MicrotaskAssignmentStatus.ASSIGNED),
+      count(MicrotaskAssignmentStatus.COMPLETED),
+      count(MicrotaskAssignmentStatus.SUBMITTED),
+      count(MicrotaskAssignmentStatus.VERIFIED),
+      count(MicrotaskAssignmentStatus.SKIPPED),
+    )
   }
 
 }
@@ -2,8 +2,11 @@ package com.microsoft.research.karya.data.service
 
 import com.microsoft.research.karya.data.model.karya.KaryaFileRecord
 import com.microsoft.research.karya.data.model.karya.MicroTaskAssignmentRecord
+import com.microsoft.research.karya.data.remote.request.UploadFileRequest
 import com.microsoft.research.karya.data.remote.response.GetAssignmentsResponse
+import com.microsoft.research.karya.data.remote.response.UploadSessionResponse
 import okhttp3.MultipartBody
+import okhttp3.RequestBody
 import okhttp3.ResponseBody
 import retrofit2.Response
 import retrofit2.http.*
@@ -36,18 +39,54 @@ interface MicroTaskAssignmentAPI {
     @Query("type") type: String = "verified",
   ): Response<List<MicroTaskAssignmentRecord>>
 
+  /**
+   * Submit the output file of an assignment. The [json] part is sent after the [file] part so that
+   * the checksum of a streamed file can be computed while it is being sent.
+   */
   @Multipart
   @POST("/assignment/{id}/output_file")
   suspend fun submitAssignmentOutputFile(
     @Header("karya-id-token") idTokenHeader: String,
     @Path("id") id: String,
-    @Part json: MultipartBody.Part,
     @Part file: MultipartBody.Part,
+    @Part json: MultipartBody.Part,
+  ): Response<KaryaFileRecord>
+
+  @POST("/assignment/{id}/output_file/upload")
+  suspend fun createOutputFileUpload(
+    @Header("karya-id-token") idTokenHeader: String,
+    @Path("id") id: String,
+  ): Response<UploadSessionResponse>
+
+  @GET("/assignment/{id}/output_file/upload/{session_id}")
+  suspend fun getOutputFileUpload(
+    @Header("karya-id-token") idTokenHeader: String,
+    @Path("id") id: String,
+    @Path("session_id") sessionId: String,
+  ): Response<UploadSessionResponse>
+
+  @PUT("/assignment/{id}/output_file/upload/{session_id}")
+  suspend fun uploadOutputFileChunk(
+    @Header("karya-id-token") idTokenHeader: String,
+    @Path("id") id: String,
+    @Path("session_id") sessionId: String,
+    @Query("offset") offset: Long,
+    @Body chunk: RequestBody,
+  ): Response<UploadSessionResponse>
+
+  @POST("/assignment/{id}/output_file/upload/{session_id}/complete")
+  suspend fun completeOutputFileUpload(
+    @Header("karya-id-token") idTokenHeader: String,
+    @Path("id") id: String,
+    @Path("session_id") sessionId: String,
+    @Body request: UploadFileRequest,
   ): Response<KaryaFileRecord>
 
+  @Streaming
   @GET("/assignment/{id}/input_file")
   suspend fun getInputFile(
     @Header("karya-id-token") idToken: String,
     @Path("id") assignmentId: String,
+    @Header("Range") range: String? = null,
   ): Response<ResponseBody>
 }
@@ -1,6 +1,7 @@
 package com.microsoft.research.karya.injection
 
 import com.microsoft.research.karya.data.local.daos.*
+import com.microsoft.research.karya.data.local.daosExtra.KaryaFileDaoExtra
 import com.microsoft.research.karya.data.local.daosExtra.MicrotaskAssignmentDaoExtra
 import com.microsoft.research.karya.data.local.daosExtra.MicrotaskDaoExtra
 import com.microsoft.research.karya.data.manager.KaryaDatabase
@@ -44,12 +45,24 @@ class DaoModule {
     return karyaDatabase.karyaFileDao()
   }
 
+  @Provides
+  @Reusable
+  fun provideUploadSessionDao(karyaDatabase: KaryaDatabase): UploadSessionDao {
+    return karyaDatabase.uploadSessionDao()
+  }
+
   @Provides
   @Reusable
   fun provideMicroTaskAssignmentDaoExtra(karyaDatabase: KaryaDatabase): MicrotaskAssignmentDaoExtra {
     return karyaDatabase.microtaskAssignmentDaoExtra()
   }
 
+  @Provides
+  @Reusable
+  fun provideKaryaFileDaoExtra(karyaDatabase: KaryaDatabase): KaryaFileDaoExtra {
+    return karyaDatabase.karyaFileDaoExtra()
+  }
+
   @Provides
   @Reusable
   fun provideMicroTaskDaoExtra(karyaDatabase: KaryaDatabase): MicrotaskDaoExtra {
@@ -2,6 +2,7 @@ package com.microsoft.research.karya.injection
 
 import android.content.Context
 import androidx.room.Room
+import com.microsoft.research.karya.data.local.ALL_MIGRATIONS
 import com.microsoft.research.karya.data.manager.KaryaDatabase
 import dagger.Module
 import dagger.Provides
@@ -17,6 +18,8 @@ class DatabaseModule {
   @Provides
   @Singleton
   fun providesKaryaDatabase(@ApplicationContext context: Context): KaryaDatabase {
-    return Room.databaseBuilder(context, KaryaDatabase::class.java, "karya.db").build()
+    return Room.databaseBuilder(context, KaryaDatabase::class.java, "karya.db")
+      .addMigrations(*ALL_MIGRATIONS)
+      .build()
   }
 }
@@ -3,6 +3,7 @@ package com.microsoft.research.karya.injection
 import com.microsoft.research.karya.data.local.daos.KaryaFileDao
 import com.microsoft.research.karya.data.local.daos.MicroTaskDao
 import com.microsoft.research.karya.data.local.daos.WorkerDao
+import com.microsoft.research.karya.data.local.daosExtra.KaryaFileDaoExtra
 import com.microsoft.research.karya.data.local.daosExtra.MicrotaskDaoExtra
 import com.microsoft.research.karya.data.repo.*
 import com.microsoft.research.karya.data.service.LanguageAPI
@@ -40,8 +41,11 @@ class RepositoryModule {
 
   @Provides
   @Singleton
-  fun provideKaryaFileRepository(karyaFileDao: KaryaFileDao): KaryaFileRepository {
-    return KaryaFileRepository(karyaFileDao)
+  fun provideKaryaFileRepository(
+    karyaFileDao: KaryaFileDao,
+    karyaFileDaoExtra: KaryaFileDaoExtra
+  ): KaryaFileRepository {
+    return KaryaFileRepository(karyaFileDao, karyaFileDaoExtra)
   }
 
   @Provides
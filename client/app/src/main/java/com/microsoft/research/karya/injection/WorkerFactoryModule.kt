@@ -1,5 +1,7 @@
 package com.microsoft.research.karya.injection
 
+import android.content.Context
+import androidx.work.WorkManager
 import com.microsoft.research.karya.data.manager.AuthManager
 import com.microsoft.research.karya.data.manager.SyncDelegatingWorkerFactory
 import com.microsoft.research.karya.data.repo.AssignmentRepository
@@ -9,6 +11,7 @@ import com.microsoft.research.karya.injection.qualifier.FilesDir
 import dagger.Module
 import dagger.Provides
 import dagger.hilt.InstallIn
+import dagger.hilt.android.qualifiers.ApplicationContext
 import dagger.hilt.components.SingletonComponent
 import javax.inject.Singleton
 
@@ -35,4 +38,10 @@ class WorkerFactoryModule {
 
     return workerFactory
   }
+
+  @Provides
+  @Singleton
+  fun providesWorkManager(@ApplicationContext context: Context): WorkManager {
+    return WorkManager.getInstance(context)
+  }
 }
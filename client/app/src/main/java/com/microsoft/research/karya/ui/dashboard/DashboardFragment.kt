@@ -111,7 +111,8 @@ class DashboardFragment : SessionFragment(R.layout.fragment_dashboard) {
   }
 
   override fun onSessionExpired() {
-    WorkManager.getInstance(requireContext()).cancelAllWork()
+    // Only stop the sync. Queued recordings keep encoding.
+    WorkManager.getInstance(requireContext()).cancelUniqueWork(UNIQUE_SYNC_WORK_NAME)
     super.onSessionExpired()
   }
 
@@ -215,7 +216,7 @@ class DashboardFragment : SessionFragment(R.layout.fragment_dashboard) {
 
   private fun showError(message: String, errorType: ERROR_TYPE, errorLvl: ERROR_LVL) {
     if (errorType == ERROR_TYPE.SYNC_ERROR) {
-      WorkManager.getInstance(requireContext()).cancelAllWork()
+      WorkManager.getInstance(requireContext()).cancelUniqueWork(UNIQUE_SYNC_WORK_NAME)
       with(binding) {
         syncErrorMessageTv.text = message
 
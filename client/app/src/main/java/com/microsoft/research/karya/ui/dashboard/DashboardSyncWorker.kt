@@ -4,12 +4,15 @@ import android.content.Context
 import android.util.Log
 import androidx.work.CoroutineWorker
 import androidx.work.Data
+import androidx.work.WorkManager
 import androidx.work.WorkerParameters
-import com.google.gson.Gson
 import com.microsoft.research.karya.R
+import com.microsoft.research.karya.data.exceptions.UploadRejectedException
 import com.microsoft.research.karya.data.manager.AuthManager
 import com.microsoft.research.karya.data.model.karya.ChecksumAlgorithm
 import com.microsoft.research.karya.data.model.karya.MicroTaskAssignmentRecord
+import com.microsoft.research.karya.data.remote.request.DeferredJsonRequestBody
+import com.microsoft.research.karya.data.remote.request.TarBallRequestBody
 import com.microsoft.research.karya.data.remote.request.UploadFileRequest
 import com.microsoft.research.karya.data.repo.AssignmentRepository
 import com.microsoft.research.karya.data.repo.KaryaFileRepository
@@ -21,16 +24,22 @@ import com.microsoft.research.karya.ui.dashboard.PROGRESS_STATUS.MAX_FETCH_VERIF
 import com.microsoft.research.karya.ui.dashboard.PROGRESS_STATUS.MAX_RECEIVE_DB_UPDATES_PROGRESS
 import com.microsoft.research.karya.ui.dashboard.PROGRESS_STATUS.MAX_SEND_DB_UPDATES_PROGRESS
 import com.microsoft.research.karya.ui.dashboard.PROGRESS_STATUS.MAX_UPLOAD_PROGRESS
+import com.microsoft.research.karya.ui.scenarios.speechData.EncodeRecordingWorker
 import com.microsoft.research.karya.utils.DateUtils
-import com.microsoft.research.karya.utils.FileUtils
 import com.microsoft.research.karya.utils.MicrotaskAssignmentOutput
 import com.microsoft.research.karya.utils.MicrotaskInput
+import com.microsoft.research.karya.utils.ResumableDownloader
 import com.microsoft.research.karya.utils.extensions.getBlobPath
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.channels.Channel
+import kotlinx.coroutines.coroutineScope
 import kotlinx.coroutines.flow.collect
-import okhttp3.MediaType.Companion.toMediaTypeOrNull
+import kotlinx.coroutines.launch
 import okhttp3.MultipartBody
-import okhttp3.RequestBody
 import java.io.File
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicReference
+
 object PROGRESS_STATUS {
   const val MAX_UPLOAD_PROGRESS = 25
   const val MAX_SEND_DB_UPDATES_PROGRESS = 40
@@ -40,6 +49,21 @@ object PROGRESS_STATUS {
   const val MAX_CLEANUP_PROGRESS = 100
 }
 
+/** Input data key for the maximum number of output files uploaded in parallel */
+const val MAX_PARALLEL_UPLOADS_KEY = "maxParallelUploads"
+private const val DEFAULT_MAX_PARALLEL_UPLOADS = 3
+
+/** Input data keys for the maximum number of parallel input file downloads and their combined bandwidth */
+const val MAX_PARALLEL_DOWNLOADS_KEY = "maxParallelDownloads"
+const val MAX_DOWNLOAD_BYTES_PER_SECOND_KEY = "maxDownloadBytesPerSecond"
+private const val DEFAULT_MAX_PARALLEL_DOWNLOADS = 3
+
+/** Outputs larger than this (before compression) are uploaded through a resumable session */
+private const val RESUMABLE_UPLOAD_THRESHOLD = 256 * 1024L
+
+/** Number of syncs in which the upload of an output file may fail before the assignment is recorded again */
+private const val MAX_FAILED_UPLOAD_SYNCS = 5
+
 class DashboardSyncWorker(
   appContext: Context,
   workerParams: WorkerParameters,
@@ -53,7 +77,7 @@ class DashboardSyncWorker(
   private val microtaskOutputContainer = MicrotaskAssignmentOutput(fileDirPath)
   private val microtaskInputContainer = MicrotaskInput(fileDirPath)
 
-  private var warningMsg: String? = null
+  @Volatile private var warningMsg: String? = null
 
   override suspend fun doWork(): Result {
 
@@ -83,40 +107,127 @@ class DashboardSyncWorker(
     setProgressAsync(Data.Builder().putInt("progress", MAX_CLEANUP_PROGRESS).build())
   }
 
-  /** Upload the Files of completed Assignments */
+  /**
+   * Upload the Files of completed Assignments. The output files of each assignment are collected on
+   * the IO pool and handed over to a bounded set of uploaders, which stream them to the server as a
+   * tarball without storing it on the device. Assignments whose recordings are still being encoded
+   * are left for a later sync; they are not submitted either until their output is uploaded.
+   */
   private suspend fun uploadOutputFiles() {
     val updates = assignmentRepository.getLocalCompletedAssignments()
+    val encodingAssignmentIds =
+      EncodeRecordingWorker.getPendingAssignmentIds(WorkManager.getInstance(applicationContext))
 
     val filteredAssignments =
       updates.filter {
         // output_file_id is the id of the file in the blob storage(cloud) and will be non-empty if
         // the file was already uploaded
-        it.output_file_id == null && !it.output.isJsonNull && it.output.asJsonObject.get("files").asJsonObject.size() > 0
+        it.output_file_id == null && !it.output.isJsonNull && it.output.asJsonObject.get("files").asJsonObject.size() > 0 &&
+          !encodingAssignmentIds.contains(it.id)
       }
 
-    var count = 0
-    for (assignment in filteredAssignments) {
-      try {
-        val assignmentTarBallPath = microtaskOutputContainer.getBlobPath(assignment.id)
-        val tarBallName = microtaskOutputContainer.getBlobName(assignment.id)
-        val outputDir = microtaskOutputContainer.getDirectory()
-        val outputFiles = assignment.output.asJsonObject.get("files").asJsonObject
-        val fileNames = outputFiles.keySet().map { it -> outputFiles.get(it).asString }
-        val outputFilePaths = fileNames.map { "$outputDir/${it}" }
-        FileUtils.createTarBall(assignmentTarBallPath, outputFilePaths, fileNames)
-        uploadTarBall(assignment, assignmentTarBallPath, tarBallName)
-        count += 1
-        val localProgress = (count * MAX_UPLOAD_PROGRESS) / filteredAssignments.size
-        setProgressAsync(Data.Builder().putInt("progress", localProgress).build())
-      } catch (e: Exception) {
-        // The assignments for which output file can not be prepared, mark them assigned.
-        assignmentRepository.markAssigned(assignment.id, DateUtils.getCurrentDate())
-        warningMsg = applicationContext.getString(R.string.FAILED_UPLOAD_RECORD_AGAIN_MSG)
-        Log.e("UPLOAD_OUTPUT_FILE", "Failed to prepare output file for the assignment")
+    if (filteredAssignments.isEmpty()) return
+
+    val maxParallelUploads =
+      inputData.getInt(MAX_PARALLEL_UPLOADS_KEY, DEFAULT_MAX_PARALLEL_UPLOADS).coerceAtLeast(1)
+
+    // Assignments waiting to be uploaded. Bounded so that preparation does not run too far
+    // ahead of the uploads.
+    val preparedAssignments = Channel<Pair<MicroTaskAssignmentRecord, TarBallRequestBody>>(maxParallelUploads)
+    val uploadedCount = AtomicInteger(0)
+    val failedCount = AtomicInteger(0)
+
+    coroutineScope {
+      // Output file collection
+      launch(Dispatchers.IO) {
+        try {
+          for (assignment in filteredAssignments) {
+            val tarBall =
+              try {
+                createTarBallRequestBody(assignment)
+              } catch (e: Exception) {
+                onUploadFailed(assignment, uploadedCount.get(), failedCount.incrementAndGet(), filteredAssignments.size)
+                Log.e("UPLOAD_OUTPUT_FILE", "Failed to prepare output file for the assignment")
+                continue
+              }
+            preparedAssignments.send(Pair(assignment, tarBall))
+          }
+        } finally {
+          preparedAssignments.close()
+        }
+      }
+
+      // Bounded number of uploads in flight
+      repeat(maxParallelUploads) {
+        launch(Dispatchers.IO) {
+          for ((assignment, tarBall) in preparedAssignments) {
+            try {
+              uploadTarBall(assignment, tarBall, microtaskOutputContainer.getBlobName(assignment.id))
+              reportUploadProgress(
+                assignment.id,
+                uploadedCount.incrementAndGet(),
+                failedCount.get(),
+                filteredAssignments.size
+              )
+            } catch (e: UploadRejectedException) {
+              // Retrying cannot fix the upload
+              onUploadFailed(assignment, uploadedCount.get(), failedCount.incrementAndGet(), filteredAssignments.size)
+              Log.e("UPLOAD_OUTPUT_FILE", "Output file for the assignment was rejected: ${e.message}")
+            } catch (e: Exception) {
+              // Other errors are transient. The assignment stays completed and the upload continues from where it
+              // stopped on the next sync, unless it failed too many times.
+              if (assignmentRepository.recordFailedOutputFileUpload(assignment.id) >= MAX_FAILED_UPLOAD_SYNCS) {
+                onUploadFailed(assignment, uploadedCount.get(), failedCount.incrementAndGet(), filteredAssignments.size)
+              } else {
+                warningMsg = applicationContext.getString(R.string.FAILED_UPLOAD_RESUME_MSG)
+                reportUploadProgress(
+                  assignment.id,
+                  uploadedCount.get(),
+                  failedCount.incrementAndGet(),
+                  filteredAssignments.size
+                )
+              }
+              Log.e("UPLOAD_OUTPUT_FILE", "Failed to upload output file for the assignment")
+            }
+          }
+        }
       }
     }
   }
 
+  /** Create the request body that streams the output tarball of an [assignment] */
+  private fun createTarBallRequestBody(assignment: MicroTaskAssignmentRecord): TarBallRequestBody {
+    val outputDir = microtaskOutputContainer.getDirectory()
+    val outputFiles = assignment.output.asJsonObject.get("files").asJsonObject
+    val fileNames = outputFiles.keySet().map { it -> outputFiles.get(it).asString }
+    val outputFilePaths = fileNames.map { "$outputDir/${it}" }
+    return TarBallRequestBody(outputFilePaths, fileNames)
+  }
+
+  /**
+   * The assignments for which output file can not be prepared or uploaded, mark them assigned so that
+   * the worker can record them again.
+   */
+  private suspend fun onUploadFailed(assignment: MicroTaskAssignmentRecord, uploaded: Int, failed: Int, total: Int) {
+    assignmentRepository.discardOutputFileUpload(assignment.id)
+    assignmentRepository.markAssigned(assignment.id, DateUtils.getCurrentDate())
+    warningMsg = applicationContext.getString(R.string.FAILED_UPLOAD_RECORD_AGAIN_MSG)
+    reportUploadProgress(assignment.id, uploaded, failed, total)
+  }
+
+  /** Report the progress of the upload stage after an assignment has been processed */
+  private fun reportUploadProgress(assignmentId: String, uploaded: Int, failed: Int, total: Int) {
+    val localProgress = ((uploaded + failed) * MAX_UPLOAD_PROGRESS) / total
+    setProgressAsync(
+      Data.Builder()
+        .putInt("progress", localProgress)
+        .putString("assignmentId", assignmentId)
+        .putInt("uploadedCount", uploaded)
+        .putInt("failedCount", failed)
+        .build()
+    )
+  }
+
   private suspend fun sendDbUpdates() {
     val worker = authManager.getLoggedInWorker()
     checkNotNull(worker.idToken) { "Worker's idToken was null" }
@@ -161,44 +272,51 @@ class DashboardSyncWorker(
       .collect()
   }
 
+  /**
+   * Download the input files of incomplete assignments. Downloads run in parallel and resume from
+   * their partial files if a previous sync was interrupted.
+   */
   private suspend fun downloadInputFiles() {
     // Get the list of assignments for which the input file has to be downloaded
     val worker = authManager.getLoggedInWorker()
     checkNotNull(worker.idToken) { "Worker's idToken was null" }
 
-    val filteredAssignments =
-      assignmentRepository
-        .getIncompleteAssignments()
-        .filter(
-          fun(assignment): Boolean {
-            val microtask = microTaskRepository.getById(assignment.microtask_id)
-            // If the microtask has no input file id then no need to download
-            if (microtask.input_file_id == null) return false
-            // If the file is already downloaded, then no need to download
-            val path = microtaskInputContainer.getBlobPath(assignment.microtask_id)
-            return !File(path).exists()
-          }
-        )
+    val requests =
+      assignmentRepository.getIncompleteAssignments().mapNotNull { assignment ->
+        val microtask = microTaskRepository.getById(assignment.microtask_id)
+        // If the microtask has no input file id then no need to download
+        val inputFileId = microtask.input_file_id ?: return@mapNotNull null
+        // If the file is already downloaded, then no need to download
+        val path = microtaskInputContainer.getBlobPath(assignment.microtask_id)
+        if (File(path).exists()) return@mapNotNull null
+
+        ResumableDownloader.Request(path, karyaFileRepository.getChecksum(inputFileId)) { range ->
+          assignmentRepository.getInputFile(worker.idToken, assignment.id, range)
+        }
+      }
+
+    if (requests.isEmpty()) return
+
+    val downloader =
+      ResumableDownloader(
+        inputData.getInt(MAX_PARALLEL_DOWNLOADS_KEY, DEFAULT_MAX_PARALLEL_DOWNLOADS),
+        inputData.getLong(MAX_DOWNLOAD_BYTES_PER_SECOND_KEY, 0L)
+      )
 
     // Download each file
-    var count = 0
-    for (assignment in filteredAssignments) {
-      assignmentRepository
-        .getInputFile(
-          worker.idToken,
-          assignment.id
-        ) // TODO: IMPLEMENT .CATCH BEFORE .COLLECT AND SEND ERROR
-//        .catch { _dashboardUiState.value = DashboardUiState.Error(it) }
-        .collect { response ->
-          FileUtils.downloadFileToLocalPath(
-            response,
-            microtaskInputContainer.getBlobPath(assignment.microtask_id)
-          )
-        }
-      count += 1
-      val localProgress = (count * 25) / filteredAssignments.size + MAX_RECEIVE_DB_UPDATES_PROGRESS
+    val count = AtomicInteger(0)
+    val firstError = AtomicReference<Throwable>()
+    downloader.downloadAll(requests) { _, error ->
+      if (error != null) {
+        Log.e("DOWNLOAD_INPUT_FILE", "Failed to download input file: ${error.message}")
+        firstError.compareAndSet(null, error)
+      }
+      val localProgress = (count.incrementAndGet() * 25) / requests.size + MAX_RECEIVE_DB_UPDATES_PROGRESS
       setProgressAsync(Data.Builder().putInt("progress", localProgress).build())
     }
+
+    // Partial files are kept, so the failed downloads resume on the next sync
+    firstError.get()?.let { throw it }
   }
 
   private suspend fun fetchVerifiedAssignments(from: String = "") {
@@ -265,33 +383,51 @@ class DashboardSyncWorker(
     }
   }
 
-  /** Upload the tarball of an assignment to the server */
+  /**
+   * Upload the tarball of an assignment to the server. Small outputs are sent in a single request.
+   * Larger ones, and those with an interrupted upload, go through a resumable upload session.
+   */
   private suspend fun uploadTarBall(
     assignment: MicroTaskAssignmentRecord,
-    assignmentTarBallPath: String,
+    tarBall: TarBallRequestBody,
     tarBallName: String,
   ) {
     val worker = authManager.getLoggedInWorker()
     checkNotNull(worker.idToken) { "Worker's idToken was null" }
 
-    val requestFile =
-      RequestBody.create("application/tgz".toMediaTypeOrNull(), File(assignmentTarBallPath))
-    val filePart = MultipartBody.Part.createFormData("file", tarBallName, requestFile)
+    if (tarBall.rawSize > RESUMABLE_UPLOAD_THRESHOLD || assignmentRepository.hasOutputFileUploadSession(assignment.id)) {
+      assignmentRepository
+        .submitAssignmentOutputFileResumable(
+          worker.idToken,
+          assignment.id,
+          tarBall,
+          microtaskOutputContainer.cname,
+          tarBallName
+        )
+        .collect { fileRecord ->
+          karyaFileRepository.insertKaryaFile(fileRecord)
+          assignmentRepository.updateOutputFileId(assignment.id, fileRecord.id)
+        }
+      return
+    }
+
+    val filePart = MultipartBody.Part.createFormData("file", tarBallName, tarBall)
 
-    val md5sum = FileUtils.getMD5Digest(assignmentTarBallPath)
-    val uploadFileRequest =
+    // The checksum is only known once the tarball has been streamed. The data part is sent after the
+    // file part and serialized at that point.
+    val dataBody = DeferredJsonRequestBody {
       UploadFileRequest(
         microtaskOutputContainer.cname,
         tarBallName,
         ChecksumAlgorithm.MD5.toString(),
-        md5sum
+        checkNotNull(tarBall.md5sum) { "Tarball was not written before its checksum" }
       )
-
-    val dataPart = MultipartBody.Part.createFormData("data", Gson().toJson(uploadFileRequest))
+    }
+    val dataPart = MultipartBody.Part.createFormData("data", null, dataBody)
 
     // Send the tarball
     assignmentRepository //TODO: IMPLEMENT .CATCH BEFORE .COLLECT AND SEND ERROR
-      .submitAssignmentOutputFile(worker.idToken, assignment.id, dataPart, filePart)
+      .submitAssignmentOutputFile(worker.idToken, assignment.id, filePart, dataPart)
       .collect { fileRecord -> // Because we want this to be synchronous
         karyaFileRepository.insertKaryaFile(fileRecord)
         assignmentRepository.updateOutputFileId(assignment.id, fileRecord.id)
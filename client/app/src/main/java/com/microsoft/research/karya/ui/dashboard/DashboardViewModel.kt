@@ -39,9 +39,10 @@ constructor(
 
   suspend fun refreshList() {
     val worker = authManager.getLoggedInWorker()
+    val taskStatuses = taskRepository.getTaskStatuses()
     val tempList = mutableListOf<TaskInfo>()
     taskInfoList.forEach { taskInfo ->
-      val taskStatus = fetchTaskStatus(taskInfo.taskID)
+      val taskStatus = taskStatuses[taskInfo.taskID] ?: EMPTY_TASK_STATUS
       tempList.add(
         TaskInfo(
           taskInfo.taskID,
@@ -60,7 +61,9 @@ constructor(
   }
 
   /**
-   * Returns a hot flow connected to the DB
+   * Returns a hot flow connected to the DB. Task records and the assignment counts of all tasks are
+   * observed together, so each emission costs a single status query irrespective of the number of
+   * tasks.
    * @return [Flow] of list of [TaskRecord] wrapper in a [Result]
    */
   @Suppress("USELESS_CAST")
@@ -70,11 +73,12 @@ constructor(
 
       taskRepository
         .getAllTasksFlow()
+        .combine(taskRepository.getTaskStatusesFlow()) { taskList, taskStatuses -> Pair(taskList, taskStatuses) }
         .flowOn(Dispatchers.IO)
-        .onEach { taskList ->
+        .onEach { (taskList, taskStatuses) ->
           val tempList = mutableListOf<TaskInfo>()
           taskList.forEach { taskRecord ->
-            val taskStatus = fetchTaskStatus(taskRecord.id)
+            val taskStatus = taskStatuses[taskRecord.id] ?: EMPTY_TASK_STATUS
             if (taskRecord.scenario_name.equals("SIGN_LANGUAGE_VIDEO")) {
               if (taskStatus.assignedMicrotasks > 0 || taskStatus.completedMicrotasks > 0) {
                 tempList.add(
@@ -158,4 +162,9 @@ constructor(
     _progress.value = i
   }
 
+  companion object {
+    /** Status of a task that has no assignments on the device */
+    private val EMPTY_TASK_STATUS = TaskStatus(0, 0, 0, 0, 0)
+  }
+
 }
@@ -14,10 +14,14 @@ import com.microsoft.research.karya.utils.FileUtils
 import com.microsoft.research.karya.utils.MicrotaskAssignmentOutput
 import com.microsoft.research.karya.utils.MicrotaskInput
 import com.microsoft.research.karya.utils.extensions.getBlobPath
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.Job
 import kotlinx.coroutines.flow.MutableSharedFlow
+import kotlinx.coroutines.flow.MutableStateFlow
 import kotlinx.coroutines.flow.asSharedFlow
+import kotlinx.coroutines.flow.asStateFlow
 import kotlinx.coroutines.launch
-import kotlinx.coroutines.runBlocking
+import kotlinx.coroutines.withContext
 import java.io.File
 import kotlin.properties.Delegates
 
@@ -54,22 +58,38 @@ constructor(
   private val _navigateBack: MutableSharedFlow<Boolean> = MutableSharedFlow(1)
   val navigateBack = _navigateBack.asSharedFlow()
 
+  /** True until the task and its assignment IDs are loaded by [setupViewModel] */
+  private val _isLoading: MutableStateFlow<Boolean> = MutableStateFlow(true)
+  val isLoading = _isLoading.asStateFlow()
+
+  private var setupJob: Job? = null
+
   protected fun navigateBack() {
     viewModelScope.launch { _navigateBack.emit(true) }
   }
 
+  /**
+   * Load the task and its verified assignment IDs in the background. [isLoading] turns false once
+   * this is done; [task] must not be accessed before that.
+   */
   open fun setupViewModel(taskId: String, verifiedMTA: Int) {
+    // The fragment calls this whenever its view is created. Do not reload the same task.
+    if (setupJob != null && this.taskId == taskId) return
+
     this.taskId = taskId
     this.verifiedAssignments = verifiedMTA
 
     // TODO: Shift this to init once we move to viewmodel factory
-    runBlocking {
+    _isLoading.value = true
+    setupJob = viewModelScope.launch {
       task = taskRepository.getById(taskId)
       microtaskAssignmentIDs = assignmentRepository.getLocalVerifiedAssignments(task.id)
 
       if (microtaskAssignmentIDs.isEmpty()) {
         navigateBack()
       }
+
+      _isLoading.value = false
     }
   }
 
@@ -133,6 +153,9 @@ constructor(
   /** Get the microtask record for the current assignment and setup the microtask */
   fun getAndSetupMicrotask() {
     viewModelScope.launch {
+      setupJob?.join()
+      if (microtaskAssignmentIDs.isEmpty()) return@launch
+
       val assignmentID = microtaskAssignmentIDs[currentAssignmentIndex]
 
       // Fetch the assignment and the microtask
@@ -150,10 +173,12 @@ constructor(
           inputFileDoesNotExist = true
           // TODO: Create a MutableLiveData to inform the UI about an alertbox
         } else {
-          FileUtils.extractGZippedTarBallIntoDirectory(
-            microtaskTarBallPath,
-            microtaskInputDirectory
-          )
+          withContext(Dispatchers.IO) {
+            FileUtils.extractGZippedTarBallIntoDirectoryIfNeeded(
+              microtaskTarBallPath,
+              microtaskInputDirectory
+            )
+          }
         }
       }
 
@@ -11,6 +11,7 @@ import androidx.navigation.fragment.findNavController
 import com.microsoft.research.karya.R
 import com.microsoft.research.karya.ui.base.BaseFragment
 import com.microsoft.research.karya.utils.extensions.observe
+import kotlinx.coroutines.flow.first
 
 abstract class BaseMTRendererFragment(@LayoutRes contentLayoutId: Int) :
   BaseFragment(contentLayoutId) {
@@ -30,9 +31,20 @@ abstract class BaseMTRendererFragment(@LayoutRes contentLayoutId: Int) :
     return arrayOf()
   }
 
+  /**
+   * Set up the views that depend on [BaseMTRendererViewModel.task]. Called once per view, after the
+   * view model has finished loading the task.
+   */
+  protected open fun setupTaskViews() {}
+
   override fun onViewCreated(view: View, savedInstanceState: Bundle?) {
     super.onViewCreated(view, savedInstanceState)
     setUpObservers()
+
+    viewLifecycleOwner.lifecycleScope.launchWhenStarted {
+      viewModel.isLoading.first { loading -> !loading }
+      setupTaskViews()
+    }
     /** Check if there are any permissions needed */
     val permissions = requiredPermissions()
     if (permissions.isNotEmpty()) {
@@ -1,5 +1,8 @@
 package com.microsoft.research.karya.ui.scenarios.common
 
+import android.content.res.Resources
+import android.graphics.Bitmap
+import android.graphics.BitmapFactory
 import androidx.lifecycle.ViewModel
 import androidx.lifecycle.viewModelScope
 import com.google.gson.Gson
@@ -15,19 +18,42 @@ import com.microsoft.research.karya.data.repo.MicroTaskRepository
 import com.microsoft.research.karya.data.repo.TaskRepository
 import com.microsoft.research.karya.utils.DateUtils
 import com.microsoft.research.karya.utils.FileUtils
+import com.microsoft.research.karya.utils.IndexedTarFile
 import com.microsoft.research.karya.utils.MicrotaskAssignmentOutput
 import com.microsoft.research.karya.utils.MicrotaskInput
 import com.microsoft.research.karya.utils.extensions.getBlobPath
+import kotlinx.coroutines.Deferred
 import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.async
 import kotlinx.coroutines.flow.MutableSharedFlow
 import kotlinx.coroutines.flow.MutableStateFlow
 import kotlinx.coroutines.flow.asSharedFlow
+import kotlinx.coroutines.flow.asStateFlow
 import kotlinx.coroutines.launch
-import kotlinx.coroutines.runBlocking
+import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.withLock
 import kotlinx.coroutines.withContext
 import java.io.File
+import java.io.FileInputStream
+import java.io.IOException
+import java.io.InputStream
 import kotlin.properties.Delegates
 
+/** Number of microtasks after the current one that are prepared in the background */
+private const val PREFETCH_COUNT = 2
+
+/**
+ * Records of a microtask assignment and its microtask, with the microtask inputs extracted, and the
+ * scenario specific [preparedInputs]
+ */
+private class PreparedMicrotask(
+  val assignment: MicroTaskAssignmentRecord,
+  val microTask: MicroTaskRecord,
+  val inputFileDoesNotExist: Boolean,
+  val preparedInputs: Any?,
+)
+
 abstract class BaseMTRendererViewModel
 constructor(
   var assignmentRepository: AssignmentRepository,
@@ -50,9 +76,19 @@ constructor(
   protected lateinit var microtaskAssignmentIDs: List<String>
   protected var currentAssignmentIndex: Int = 0
 
+  /**
+   * Microtasks being prepared ahead of navigation, keyed by assignment ID. Only accessed from the
+   * main thread.
+   */
+  private val prefetchedMicrotasks = mutableMapOf<String, Deferred<PreparedMicrotask>>()
+
   lateinit var currentMicroTask: MicroTaskRecord
   protected lateinit var currentAssignment: MicroTaskAssignmentRecord
 
+  /** Inputs of the current microtask prepared by [prepareMicrotaskInputs], set before [setupMicrotask] */
+  protected var preparedInputs: Any? = null
+    private set
+
   //  protected var totalMicrotasks = incompleteMta + completedMta
   protected var completedMicrotasks: Int = 0
 
@@ -67,41 +103,58 @@ constructor(
 
   private val _inputFileDoesNotExist: MutableStateFlow<Boolean> = MutableStateFlow(false)
   val inputFileDoesNotExist = _inputFileDoesNotExist.asSharedFlow()
+
+  /** True until the task and its assignment IDs are loaded by [setupViewModel] */
+  private val _isLoading: MutableStateFlow<Boolean> = MutableStateFlow(true)
+  val isLoading = _isLoading.asStateFlow()
+
+  private var setupJob: Job? = null
+
   protected fun navigateBack() {
     viewModelScope.launch { _navigateBack.emit(true) }
   }
 
-  open fun setupViewModel(taskId: String, incompleteMta: Int, completedMta: Int) {
+  /**
+   * Load the task and its assignment IDs in the background and move to the first assigned
+   * microtask. [isLoading] turns false once this is done; [task] must not be accessed before that.
+   */
+  fun setupViewModel(taskId: String, incompleteMta: Int, completedMta: Int) {
+    // The fragment calls this whenever its view is created. Do not reload the same task.
+    if (setupJob != null && this.taskId == taskId) return
+
     this.taskId = taskId
     this.incompleteAssignments = incompleteMta
     this.completedAssignments = completedMta
 
     // TODO: Shift this to init once we move to viewmodel factory
-    runBlocking {
+    _isLoading.value = true
+    setupJob = viewModelScope.launch {
       task = taskRepository.getById(taskId)
-      microtaskAssignmentIDs =
-        assignmentRepository.getUnsubmittedIDsForTask(
+      // IDs and statuses come from a single scan of the (task_id, status, id) index
+      val assignments =
+        assignmentRepository.getUnsubmittedIDStatusesForTask(
           task.id,
           includeCompleted
         ) // TODO: Generalise the includeCompleted parameter (Can be done when we have viewModel
       // factory)
+      microtaskAssignmentIDs = assignments.map { it.id }
 
       if (microtaskAssignmentIDs.isEmpty()) {
         navigateBack()
       }
 
       // Move to the first incomplete (assigned) microtask or the last microtask
-      while (currentAssignmentIndex < microtaskAssignmentIDs.size - 1) {
-        val microtaskAssignmentID = microtaskAssignmentIDs[currentAssignmentIndex]
-        val microtaskAssignment = assignmentRepository.getAssignmentById(microtaskAssignmentID)
-        if (microtaskAssignment.status == MicrotaskAssignmentStatus.ASSIGNED) {
-          break
-        }
-        currentAssignmentIndex++
-      }
+      val firstAssigned = assignments.indexOfFirst { it.status == MicrotaskAssignmentStatus.ASSIGNED }
+      currentAssignmentIndex = if (firstAssigned >= 0) firstAssigned else maxOf(assignments.size - 1, 0)
+
+      onTaskLoaded()
+      _isLoading.value = false
     }
   }
 
+  /** Called once [task] is loaded, before [isLoading] turns false */
+  protected open fun onTaskLoaded() {}
+
   /**
    * Setup microtask after updating [currentAssignmentIndex]. Called at the end of [onResume], and
    * navigating to next or previous tasks
@@ -220,6 +273,7 @@ constructor(
    */
   protected fun moveToPreviousMicrotask() {
     if (hasPreviousMicrotask()) {
+      cancelPrefetches()
       currentAssignmentIndex--
       getAndSetupMicrotask()
     } else {
@@ -230,28 +284,26 @@ constructor(
   /** Get the microtask record for the current assignment and setup the microtask */
   fun getAndSetupMicrotask() {
     viewModelScope.launch {
-      val assignmentID = microtaskAssignmentIDs[currentAssignmentIndex]
+      setupJob?.join()
+      if (microtaskAssignmentIDs.isEmpty()) return@launch
 
-      // Fetch the assignment and the microtask
-      currentAssignment = assignmentRepository.getAssignmentById(assignmentID)
-      currentMicroTask = microTaskRepository.getById(currentAssignment.microtask_id)
-
-      /** If microtask has input files, extract them */
-      _inputFileDoesNotExist.value = false
-      if (currentMicroTask.input_file_id != null) {
-        val microtaskTarBallPath = microtaskInputContainer.getBlobPath(currentMicroTask.id)
-        val microtaskInputDirectory =
-          microtaskInputContainer.getMicrotaskInputDirectory(currentMicroTask.id)
+      val assignmentID = microtaskAssignmentIDs[currentAssignmentIndex]
 
-        if (!File(microtaskTarBallPath).exists()) {
-          _inputFileDoesNotExist.value = true
-        } else {
-          FileUtils.extractGZippedTarBallIntoDirectory(
-            microtaskTarBallPath,
-            microtaskInputDirectory
-          )
+      // Use the prefetched microtask if it is ready or on its way. Else prepare it now.
+      val prefetched = prefetchedMicrotasks.remove(assignmentID)
+      val prepared =
+        try {
+          prefetched?.await()
+        } catch (e: Exception) {
+          // A cancelled or failed prefetch is simply redone
+          null
         }
-      }
+          ?: prepareMicrotask(assignmentID)
+
+      currentAssignment = prepared.assignment
+      currentMicroTask = prepared.microTask
+      preparedInputs = prepared.preparedInputs
+      _inputFileDoesNotExist.value = prepared.inputFileDoesNotExist
 
       if (_inputFileDoesNotExist.value) return@launch
 
@@ -277,6 +329,161 @@ constructor(
         }
 
       setupMicrotask()
+      prefetchNextMicrotasks()
+    }
+  }
+
+  /**
+   * Fetch the assignment with the given [assignmentID] and its microtask, and extract and prepare the
+   * microtask inputs. Runs on the IO dispatcher so that it can be done ahead of navigation.
+   */
+  private suspend fun prepareMicrotask(assignmentID: String): PreparedMicrotask =
+    withContext(Dispatchers.IO) {
+      val assignment = assignmentRepository.getAssignmentById(assignmentID)
+      val microTask = microTaskRepository.getById(assignment.microtask_id)
+
+      // Cancelling a preparation does not stop a blocking extraction that is under way. Wait for it to
+      // finish, instead of writing the same files at the same time.
+      withInputLock(microTask.id) {
+        /** If microtask has input files, extract them */
+        var inputFileDoesNotExist = false
+        if (microTask.input_file_id != null) {
+          val microtaskTarBallPath = microtaskInputContainer.getBlobPath(microTask.id)
+          val microtaskInputDirectory = microtaskInputContainer.getMicrotaskInputDirectory(microTask.id)
+
+          if (!File(microtaskTarBallPath).exists()) {
+            inputFileDoesNotExist = true
+          } else if (opensInputsFromArchive && IndexedTarFile.isSeekable(microtaskTarBallPath)) {
+            // Index the tar ball ahead, so that inputs can be opened in place
+            val indexPath = microtaskInputContainer.getMicrotaskInputIndexPath(microTask.id)
+            try {
+              IndexedTarFile.open(microtaskTarBallPath, indexPath)?.close()
+            } catch (e: IOException) {
+              // A truncated tar ball cannot be indexed. Its inputs then fail to open, and read as missing.
+            }
+          } else {
+            FileUtils.extractGZippedTarBallIntoDirectoryIfNeeded(microtaskTarBallPath, microtaskInputDirectory)
+          }
+        }
+
+        val preparedInputs = if (!inputFileDoesNotExist) prepareMicrotaskInputs(microTask) else null
+
+        PreparedMicrotask(assignment, microTask, inputFileDoesNotExist, preparedInputs)
+      }
+    }
+
+  /**
+   * Scenario specific preparation of the extracted inputs of [microTask] (e.g., decoding media), run
+   * on the IO dispatcher while the microtask is prepared or prefetched. The result is available as
+   * [preparedInputs] when the microtask is set up.
+   */
+  protected open suspend fun prepareMicrotaskInputs(microTask: MicroTaskRecord): Any? = null
+
+  /**
+   * Does the scenario read its inputs only through [openMicrotaskInputFile]? If so, seekable input tar
+   * balls are read in place instead of being extracted.
+   */
+  protected open val opensInputsFromArchive: Boolean = false
+
+  /**
+   * Open the input file [fileName] of [microtaskId], or return null if it does not exist. Seekable tar
+   * balls are read in place if the scenario [opensInputsFromArchive]. Other inputs are read from the
+   * directory they were extracted to. Throws an IOException if the tar ball is truncated. Blocks, so
+   * must not be called on the main thread.
+   */
+  protected fun openMicrotaskInputFile(microtaskId: String, fileName: String): InputStream? {
+    val tarBallPath = microtaskInputContainer.getBlobPath(microtaskId)
+    if (opensInputsFromArchive && IndexedTarFile.isSeekable(tarBallPath)) {
+      val indexPath = microtaskInputContainer.getMicrotaskInputIndexPath(microtaskId)
+      return IndexedTarFile.openEntry(tarBallPath, indexPath, fileName)
+    }
+
+    val file = File(microtaskInputContainer.getMicrotaskInputFilePath(microtaskId, fileName))
+    return if (file.exists()) FileInputStream(file) else null
+  }
+
+  /**
+   * Decode the input image [fileName] of [microtaskId] on the IO dispatcher, or return null if it cannot be read.
+   * Larger images are subsampled by powers of two until their longer side fits in [maxSize] pixels (by default the
+   * longer side of the screen), so that prefetched images do not hold full resolution bitmaps in memory.
+   */
+  protected suspend fun decodeMicrotaskInputImage(
+    microtaskId: String,
+    fileName: String,
+    maxSize: Int = Resources.getSystem().displayMetrics.let { maxOf(it.widthPixels, it.heightPixels) }
+  ): Bitmap? =
+    withContext(Dispatchers.IO) {
+      try {
+        // Read the size of the image first, to pick the sample size
+        val bounds = BitmapFactory.Options().apply { inJustDecodeBounds = true }
+        val input = openMicrotaskInputFile(microtaskId, fileName) ?: return@withContext null
+        input.use { BitmapFactory.decodeStream(it, null, bounds) }
+
+        var sampleSize = 1
+        while (maxOf(bounds.outWidth, bounds.outHeight) / sampleSize > maxSize) sampleSize *= 2
+        val options = BitmapFactory.Options().apply { inSampleSize = sampleSize }
+        openMicrotaskInputFile(microtaskId, fileName)?.use { BitmapFactory.decodeStream(it, null, options) }
+      } catch (e: IOException) {
+        null
+      }
+    }
+
+  /**
+   * Start preparing the next [PREFETCH_COUNT] microtasks in the background, and drop prefetches that
+   * are no longer ahead of the current microtask.
+   */
+  private fun prefetchNextMicrotasks() {
+    val nextIDs =
+      microtaskAssignmentIDs.subList(
+        minOf(currentAssignmentIndex + 1, microtaskAssignmentIDs.size),
+        minOf(currentAssignmentIndex + 1 + PREFETCH_COUNT, microtaskAssignmentIDs.size)
+      )
+
+    val staleIDs = prefetchedMicrotasks.keys.filter { it !in nextIDs }
+    staleIDs.forEach { prefetchedMicrotasks.remove(it)?.cancel() }
+
+    nextIDs.forEach { assignmentID ->
+      if (!prefetchedMicrotasks.containsKey(assignmentID)) {
+        prefetchedMicrotasks[assignmentID] = viewModelScope.async { prepareMicrotask(assignmentID) }
+      }
+    }
+  }
+
+  /** Cancel all the prefetches. Prefetched assignment records may be stale after moving back. */
+  private fun cancelPrefetches() {
+    prefetchedMicrotasks.values.forEach { it.cancel() }
+    prefetchedMicrotasks.clear()
+  }
+
+  override fun onCleared() {
+    cancelPrefetches()
+    super.onCleared()
+  }
+
+  companion object {
+    /**
+     * Locks on the inputs of each microtask, keyed by microtask ID, with the number of preparations
+     * holding or waiting for each of them. They are shared by all view models, as the preparation
+     * started by a cleared view model may still be running. A lock is dropped once no preparation
+     * needs it.
+     */
+    private val inputLocks = mutableMapOf<String, Pair<Mutex, Int>>()
+
+    private suspend fun <T> withInputLock(microtaskId: String, action: suspend () -> T): T {
+      val lock =
+        synchronized(inputLocks) {
+          val (mutex, users) = inputLocks[microtaskId] ?: Pair(Mutex(), 0)
+          inputLocks[microtaskId] = Pair(mutex, users + 1)
+          mutex
+        }
+      try {
+        return lock.withLock { action() }
+      } finally {
+        synchronized(inputLocks) {
+          val users = inputLocks.getValue(microtaskId).second - 1
+          if (users == 0) inputLocks.remove(microtaskId) else inputLocks[microtaskId] = Pair(lock, users)
+        }
+      }
     }
   }
 
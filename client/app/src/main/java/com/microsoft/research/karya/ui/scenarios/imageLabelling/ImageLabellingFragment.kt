@@ -1,7 +1,5 @@
 package com.microsoft.research.karya.ui.scenarios.imageLabelling
 
-import android.graphics.Bitmap
-import android.graphics.BitmapFactory
 import android.os.Bundle
 import android.util.Log
 import android.view.LayoutInflater
@@ -40,6 +38,11 @@ class ImageLabellingFragment : BaseMTRendererFragment(R.layout.microtask_image_l
     super.onViewCreated(view, savedInstanceState)
     setupObservers()
 
+    // Set next button click handler
+    nextBtn.setOnClickListener { handleNextClick() }
+  }
+
+  override fun setupTaskViews() {
     // Set microtask instruction
     val instruction = try {
       viewModel.task.params.asJsonObject.get("instruction").asString
@@ -48,9 +51,6 @@ class ImageLabellingFragment : BaseMTRendererFragment(R.layout.microtask_image_l
     }
     instructionTv.text = instruction
 
-    // Set next button click handler
-    nextBtn.setOnClickListener { handleNextClick() }
-
     // Set up label views
     val labels = try {
       viewModel.task.params.asJsonObject.get("labels").asJsonArray.map { it.asString }
@@ -77,9 +77,8 @@ class ImageLabellingFragment : BaseMTRendererFragment(R.layout.microtask_image_l
   }
 
   private fun setupObservers() {
-    viewModel.imageFilePath.observe(viewLifecycleOwner.lifecycle, viewLifecycleScope) { path ->
-      if (path.isNotEmpty()) {
-        val image: Bitmap = BitmapFactory.decodeFile(path)
+    viewModel.image.observe(viewLifecycleOwner.lifecycle, viewLifecycleScope) { image ->
+      if (image != null) {
         sourceImageIv.setImageBitmap(image)
       } else {
         sourceImageIv.setImageDrawable(null)
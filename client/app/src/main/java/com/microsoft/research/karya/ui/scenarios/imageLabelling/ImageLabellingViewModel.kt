@@ -1,10 +1,12 @@
 package com.microsoft.research.karya.ui.scenarios.imageLabelling
 
+import android.graphics.Bitmap
 import android.service.autofill.Validators.not
 import android.util.Log
 import androidx.lifecycle.viewModelScope
 import com.google.gson.JsonObject
 import com.microsoft.research.karya.data.manager.AuthManager
+import com.microsoft.research.karya.data.model.karya.MicroTaskRecord
 import com.microsoft.research.karya.data.repo.AssignmentRepository
 import com.microsoft.research.karya.data.repo.MicroTaskRepository
 import com.microsoft.research.karya.data.repo.TaskRepository
@@ -34,8 +36,11 @@ constructor(
 ) {
 
   // Image to be shown
-  private val _imageFilePath: MutableStateFlow<String> = MutableStateFlow("")
-  val imageFilePath = _imageFilePath.asStateFlow()
+  private val _image: MutableStateFlow<Bitmap?> = MutableStateFlow(null)
+  val image = _image.asStateFlow()
+
+  // The image is decoded straight from a seekable input tar ball
+  override val opensInputsFromArchive = true
 
   // State of the labels
   private val _labelState: MutableStateFlow<MutableMap<String, Boolean>> = MutableStateFlow(mutableMapOf())
@@ -57,17 +62,23 @@ constructor(
   }
 
   /**
-   * Setup image transcription microtask
+   * Decode the image file, ahead of navigation when the microtask is prefetched
    */
-  override fun setupMicrotask() {
-    // Get and set the image file
-    _imageFilePath.value = try {
-      val imageFileName =
-        currentMicroTask.input.asJsonObject.getAsJsonObject("files").get("image").asString
-      microtaskInputContainer.getMicrotaskInputFilePath(currentMicroTask.id, imageFileName)
+  override suspend fun prepareMicrotaskInputs(microTask: MicroTaskRecord): Any? {
+    val imageFileName = try {
+      microTask.input.asJsonObject.getAsJsonObject("files").get("image").asString
     } catch (e: Exception) {
-      ""
+      null
     }
+    return imageFileName?.let { decodeMicrotaskInputImage(microTask.id, it) }
+  }
+
+  /**
+   * Setup image transcription microtask
+   */
+  override fun setupMicrotask() {
+    // The image is decoded while the microtask is prepared
+    _image.value = preparedInputs as Bitmap?
 
     // Set up the labels
     val labels = try {
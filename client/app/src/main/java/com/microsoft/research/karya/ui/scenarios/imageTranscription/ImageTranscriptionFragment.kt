@@ -1,7 +1,5 @@
 package com.microsoft.research.karya.ui.scenarios.imageTranscription
 
-import android.graphics.Bitmap
-import android.graphics.BitmapFactory
 import android.os.Bundle
 import android.view.LayoutInflater
 import android.view.View
@@ -31,10 +29,7 @@ class ImageTranscriptionFragment : BaseMTRendererFragment(R.layout.microtask_ima
     return view
   }
 
-  override fun onViewCreated(view: View, savedInstanceState: Bundle?) {
-    super.onViewCreated(view, savedInstanceState)
-    setupObservers()
-
+  override fun setupTaskViews() {
     // Set microtask instruction
     val instruction = try {
       viewModel.task.params.asJsonObject.get("instruction").asString
@@ -42,6 +37,11 @@ class ImageTranscriptionFragment : BaseMTRendererFragment(R.layout.microtask_ima
       getString(R.string.image_transcription_instruction)
     }
     instructionTv.text = instruction
+  }
+
+  override fun onViewCreated(view: View, savedInstanceState: Bundle?) {
+    super.onViewCreated(view, savedInstanceState)
+    setupObservers()
 
     // Set next button click handler
     nextBtn.setOnClickListener { handleNextClick() }
@@ -58,9 +58,8 @@ class ImageTranscriptionFragment : BaseMTRendererFragment(R.layout.microtask_ima
   }
 
   private fun setupObservers() {
-    viewModel.imageFilePath.observe(viewLifecycleOwner.lifecycle, viewLifecycleScope) { path ->
-      if (path.isNotEmpty()) {
-        val image: Bitmap = BitmapFactory.decodeFile(path)
+    viewModel.image.observe(viewLifecycleOwner.lifecycle, viewLifecycleScope) { image ->
+      if (image != null) {
         sourceWordIv.setImageBitmap(image)
       } else {
         sourceWordIv.setImageResource(0)
@@ -1,7 +1,9 @@
 package com.microsoft.research.karya.ui.scenarios.imageTranscription
 
+import android.graphics.Bitmap
 import androidx.lifecycle.viewModelScope
 import com.microsoft.research.karya.data.manager.AuthManager
+import com.microsoft.research.karya.data.model.karya.MicroTaskRecord
 import com.microsoft.research.karya.data.repo.AssignmentRepository
 import com.microsoft.research.karya.data.repo.MicroTaskRepository
 import com.microsoft.research.karya.data.repo.TaskRepository
@@ -31,8 +33,11 @@ constructor(
 ) {
 
   // Image to be shown
-  private val _imageFilePath: MutableStateFlow<String> = MutableStateFlow("")
-  val imageFilePath = _imageFilePath.asStateFlow()
+  private val _image: MutableStateFlow<Bitmap?> = MutableStateFlow(null)
+  val image = _image.asStateFlow()
+
+  // The image is decoded straight from a seekable input tar ball
+  override val opensInputsFromArchive = true
 
   /**
    * Complete microtask and move to next
@@ -47,16 +52,22 @@ constructor(
   }
 
   /**
-   * Setup image transcription microtask
+   * Decode the image file, ahead of navigation when the microtask is prefetched
    */
-  override fun setupMicrotask() {
-    // Get and set the image file
-    _imageFilePath.value = try {
-      val imageFileName =
-        currentMicroTask.input.asJsonObject.getAsJsonObject("files").get("image").asString
-      microtaskInputContainer.getMicrotaskInputFilePath(currentMicroTask.id, imageFileName)
+  override suspend fun prepareMicrotaskInputs(microTask: MicroTaskRecord): Any? {
+    val imageFileName = try {
+      microTask.input.asJsonObject.getAsJsonObject("files").get("image").asString
     } catch (e: Exception) {
-      ""
+      null
     }
+    return imageFileName?.let { decodeMicrotaskInputImage(microTask.id, it) }
+  }
+
+  /**
+   * Setup image transcription microtask
+   */
+  override fun setupMicrotask() {
+    // The image is decoded while the microtask is prepared
+    _image.value = preparedInputs as Bitmap?
   }
 }
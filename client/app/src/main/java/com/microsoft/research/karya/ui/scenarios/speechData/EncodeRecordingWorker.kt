@@ -0,0 +1,153 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.research.karya.ui.scenarios.speechData
+
+import android.content.Context
+import android.util.Log
+import androidx.work.CoroutineWorker
+import androidx.work.Data
+import androidx.work.ExistingWorkPolicy
+import androidx.work.OneTimeWorkRequestBuilder
+import androidx.work.WorkManager
+import androidx.work.WorkerParameters
+import com.microsoft.research.karya.utils.EncoderProfile
+import com.microsoft.research.karya.utils.RawAudioEncoder
+import kotlinx.coroutines.sync.Semaphore
+import kotlinx.coroutines.sync.withPermit
+import java.io.File
+
+/** Tag shared by all the encode jobs */
+const val ENCODE_WORK_TAG = "encodeRecording"
+
+/** Prefix of the tag that identifies the assignment of an encode job */
+private const val ENCODE_ASSIGNMENT_TAG_PREFIX = "encodeRecording:"
+
+/** Directory (under the files dir) holding the recordings waiting to be encoded */
+private const val PENDING_RECORDING_DIRECTORY = "microtask-assignment-pending"
+
+private const val INPUT_FILE_PATH_KEY = "inputFilePath"
+private const val OUTPUT_FILE_PATH_KEY = "outputFilePath"
+
+/** Maximum number of recordings encoded at the same time */
+private const val MAX_PARALLEL_ENCODES = 2
+
+/** Number of attempts after which a recording that fails to encode is dropped */
+private const val MAX_ENCODE_ATTEMPTS = 3
+
+/**
+ * Encode a committed wav recording to the output file of its assignment, with the encoder profile
+ * of its task. The recorder moves the wav
+ * to the pending directory and enqueues this worker through [enqueue], so that encoding outlives the
+ * recording screen and the app process. Jobs are unique per assignment; recording again replaces
+ * the queued job.
+ *
+ * The encoder writes to a temporary file that is renamed to the output once complete. The wav is
+ * deleted after the rename, so a job that is rerun after process death either finds nothing to do or
+ * encodes the recording from scratch.
+ */
+class EncodeRecordingWorker(appContext: Context, workerParams: WorkerParameters) :
+  CoroutineWorker(appContext, workerParams) {
+
+  override suspend fun doWork(): Result {
+    val inputFilePath = inputData.getString(INPUT_FILE_PATH_KEY) ?: return Result.failure()
+    val outputFilePath = inputData.getString(OUTPUT_FILE_PATH_KEY) ?: return Result.failure()
+
+    val inputFile = File(inputFilePath)
+    // Already encoded, or superseded by a newer recording
+    if (!inputFile.exists()) return Result.success()
+
+    val tempFile = File("$outputFilePath.${inputFile.nameWithoutExtension}.tmp")
+
+    return try {
+      val profile = EncoderProfile.fromData(inputData)
+      encodePermits.withPermit { RawAudioEncoder(profile).encode(inputFilePath, tempFile.path) }
+
+      val outputFile = File(outputFilePath)
+      if (outputFile.exists()) outputFile.delete()
+      check(tempFile.renameTo(outputFile)) { "Failed to move the encoded recording to $outputFilePath" }
+      inputFile.delete()
+      Result.success()
+    } catch (e: Exception) {
+      tempFile.delete()
+      if (isStopped) throw e
+
+      Log.e("ENCODE_RECORDING", "Failed to encode $inputFilePath: ${e.message}")
+      if (runAttemptCount + 1 < MAX_ENCODE_ATTEMPTS) {
+        Result.retry()
+      } else {
+        // The assignment is marked assigned again when its output cannot be uploaded
+        inputFile.delete()
+        Result.failure()
+      }
+    }
+  }
+
+  companion object {
+    /** Bounds the number of encodes across all the jobs running in this process */
+    private val encodePermits = Semaphore(MAX_PARALLEL_ENCODES)
+
+    /** Get the path at which a new recording of [assignmentId] should be queued for encoding */
+    fun getPendingRecordingFilePath(fileDirPath: String, assignmentId: String): String {
+      val directory = File("$fileDirPath/$PENDING_RECORDING_DIRECTORY")
+      directory.mkdirs()
+      return "${directory.path}/$assignmentId-${System.currentTimeMillis()}.wav"
+    }
+
+    /** Get the latest recording of [assignmentId] that is waiting to be encoded, if any */
+    fun getPendingRecordingFile(fileDirPath: String, assignmentId: String): File? {
+      val files = File("$fileDirPath/$PENDING_RECORDING_DIRECTORY").listFiles() ?: return null
+      return files.filter { it.name.startsWith("$assignmentId-") }.maxByOrNull { it.name }
+    }
+
+    /**
+     * Queue the wav recording at [inputFilePath] to be encoded to [outputFilePath] with [profile]. Any
+     * job still queued for the assignment is replaced, and its recording is deleted.
+     */
+    fun enqueue(
+      workManager: WorkManager,
+      assignmentId: String,
+      inputFilePath: String,
+      outputFilePath: String,
+      profile: EncoderProfile,
+    ) {
+      val request =
+        OneTimeWorkRequestBuilder<EncodeRecordingWorker>()
+          .setInputData(
+            Data.Builder()
+              .putAll(profile.toData())
+              .putString(INPUT_FILE_PATH_KEY, inputFilePath)
+              .putString(OUTPUT_FILE_PATH_KEY, outputFilePath)
+              .build()
+          )
+          .addTag(ENCODE_WORK_TAG)
+          .addTag("$ENCODE_ASSIGNMENT_TAG_PREFIX$assignmentId")
+          .build()
+      workManager.enqueueUniqueWork("$ENCODE_ASSIGNMENT_TAG_PREFIX$assignmentId", ExistingWorkPolicy.REPLACE, request)
+
+      val inputFile = File(inputFilePath)
+      inputFile.parentFile?.listFiles()?.forEach {
+        if (it.name.startsWith("$assignmentId-") && it.name != inputFile.name) it.delete()
+      }
+    }
+
+    /** Drop the job queued for [assignmentId], if any, together with its recording */
+    fun cancel(workManager: WorkManager, fileDirPath: String, assignmentId: String) {
+      workManager.cancelUniqueWork("$ENCODE_ASSIGNMENT_TAG_PREFIX$assignmentId")
+      File("$fileDirPath/$PENDING_RECORDING_DIRECTORY").listFiles()?.forEach {
+        if (it.name.startsWith("$assignmentId-")) it.delete()
+      }
+    }
+
+    /** Get the IDs of the assignments whose recordings are still queued or being encoded */
+    fun getPendingAssignmentIds(workManager: WorkManager): Set<String> {
+      return workManager
+        .getWorkInfosByTag(ENCODE_WORK_TAG)
+        .get()
+        .filter { !it.state.isFinished }
+        .flatMap { info -> info.tags.filter { it.startsWith(ENCODE_ASSIGNMENT_TAG_PREFIX) } }
+        .map { it.removePrefix(ENCODE_ASSIGNMENT_TAG_PREFIX) }
+        .toSet()
+    }
+  }
+}
@@ -42,6 +42,14 @@ class SpeechDataMainFragment : BaseMTRendererFragment(R.layout.microtask_speech_
     return view
   }
 
+  override fun setupTaskViews() {
+    /** record instruction */
+    val recordInstruction =
+      viewModel.task.params.asJsonObject.get("instruction").asString
+        ?: getString(R.string.speech_recording_instruction)
+    recordPromptTv.text = recordInstruction
+  }
+
   override fun onViewCreated(view: View, savedInstanceState: Bundle?) {
     super.onViewCreated(view, savedInstanceState)
 
@@ -50,12 +58,6 @@ class SpeechDataMainFragment : BaseMTRendererFragment(R.layout.microtask_speech_
     /** Set OnBackPressed callback */
     requireActivity().onBackPressedDispatcher.addCallback(viewLifecycleOwner) { viewModel.onBackPressed() }
 
-    /** record instruction */
-    val recordInstruction =
-      viewModel.task.params.asJsonObject.get("instruction").asString
-        ?: getString(R.string.speech_recording_instruction)
-    recordPromptTv.text = recordInstruction
-
     /** Set card corner radius */
     recordBtnCv.addOnLayoutChangeListener { _: View,
                                             left: Int,
@@ -9,6 +9,7 @@ import androidx.datastore.preferences.core.Preferences
 import androidx.datastore.preferences.core.booleanPreferencesKey
 import androidx.datastore.preferences.core.edit
 import androidx.lifecycle.viewModelScope
+import androidx.work.WorkManager
 import com.google.gson.JsonObject
 import com.microsoft.research.karya.data.manager.AuthManager
 import com.microsoft.research.karya.data.model.karya.enums.MicrotaskAssignmentStatus
@@ -18,8 +19,12 @@ import com.microsoft.research.karya.data.repo.TaskRepository
 import com.microsoft.research.karya.injection.qualifier.FilesDir
 import com.microsoft.research.karya.ui.scenarios.common.BaseMTRendererViewModel
 import com.microsoft.research.karya.ui.scenarios.speechData.SpeechDataMainViewModel.ButtonState.*
+import com.microsoft.research.karya.utils.EncoderProfile
+import com.microsoft.research.karya.utils.LiveAudioEncoder
+import com.microsoft.research.karya.utils.PcmRingBuffer
+import com.microsoft.research.karya.utils.PlaybackProgressTicker
 import com.microsoft.research.karya.utils.PreferenceKeys
-import com.microsoft.research.karya.utils.RawToAACEncoder
+import com.microsoft.research.karya.utils.SilenceTrimmer
 import dagger.hilt.android.lifecycle.HiltViewModel
 import kotlinx.android.synthetic.main.microtask_speech_data.*
 import kotlinx.coroutines.CoroutineScope
@@ -31,18 +36,32 @@ import kotlinx.coroutines.flow.asStateFlow
 import kotlinx.coroutines.flow.first
 import kotlinx.coroutines.launch
 import kotlinx.coroutines.runBlocking
+import kotlinx.coroutines.withContext
 import java.io.DataOutputStream
+import java.io.File
 import java.io.FileOutputStream
+import java.io.IOException
+import java.io.OutputStream
 import java.io.RandomAccessFile
-import java.lang.Runnable
-import java.lang.Thread
 import javax.inject.Inject
 
-/** Audio recording parameters */
-private const val SAMPLE_RATE = 44100
+/** Audio recording parameters. The sample rate comes from the encoder profile of the task. */
 private const val AUDIO_CHANNEL = AudioFormat.CHANNEL_IN_MONO
 private const val AUDIO_ENCODING = AudioFormat.ENCODING_PCM_16BIT
 
+/** Size of the header written by [writeWavFileHeader], in front of the audio */
+private const val WAV_HEADER_SIZE = 44L
+
+/** Number of reusable buffers between audio capture and the scratch file writer */
+private const val RECORD_RING_CAPACITY = 32
+
+/** Time (in ms) the capture and file writer loops wait on a full or empty ring */
+private const val RECORD_RING_POLL_INTERVAL = 10L
+
+/** Silence trimming defaults, unless the task params configure them */
+private const val DEFAULT_SILENCE_MARGIN_MS = 300
+private const val DEFAULT_SILENCE_THRESHOLD_DBFS = -45.0
+
 @HiltViewModel
 class SpeechDataMainViewModel
 @Inject
@@ -52,7 +71,8 @@ constructor(
   microTaskRepository: MicroTaskRepository,
   @FilesDir fileDirPath: String,
   authManager: AuthManager,
-  private val datastore: DataStore<Preferences>
+  private val datastore: DataStore<Preferences>,
+  private val workManager: WorkManager,
 ) : BaseMTRendererViewModel(
   assignmentRepository,
   taskRepository,
@@ -106,11 +126,16 @@ constructor(
   private var audioRecorder: AudioRecord? = null
   private var mediaPlayer: MediaPlayer? = null
 
+  /** Encoder profile of the task. Audio is captured at its sample rate. */
+  private var encoderProfile = EncoderProfile.DEFAULT
+  private val sampleRate: Int
+    get() = encoderProfile.sampleRate
+
   /** Audio recorder config parameters */
-  private val _minBufferSize =
-    AudioRecord.getMinBufferSize(SAMPLE_RATE, AUDIO_CHANNEL, AUDIO_ENCODING)
-  private val _recorderBufferSize = _minBufferSize * 4
-  private val _recorderBufferBytes = _recorderBufferSize
+  private var _minBufferSize =
+    AudioRecord.getMinBufferSize(sampleRate, AUDIO_CHANNEL, AUDIO_ENCODING)
+  private var _recorderBufferSize = _minBufferSize * 4
+  private var _recorderBufferBytes = _recorderBufferSize
 
   /** UI State */
   @JvmField
@@ -141,14 +166,13 @@ constructor(
   private val _recordCentiSecondsTvText: MutableStateFlow<String> = MutableStateFlow("")
   val recordCentiSecondsTvText = _recordCentiSecondsTvText.asStateFlow()
 
-  private val _playbackProgressPbProgress: MutableStateFlow<Int> = MutableStateFlow(0)
-  val playbackProgressPb = _playbackProgressPbProgress.asStateFlow()
-
-  private val _playbackProgressPbMax: MutableStateFlow<Int> = MutableStateFlow(0)
-  val playbackProgressPbMax = _playbackProgressPbMax.asStateFlow()
+  /** Playback position and duration of [mediaPlayer] */
+  private val playbackProgress = PlaybackProgressTicker(viewModelScope)
+  val playbackProgressPb = playbackProgress.position
+  val playbackProgressPbMax = playbackProgress.duration
 
   /** Recording config and state */
-  private val maxPreRecordBytes = timeToSamples(prerecordingTime) * 2
+  private var maxPreRecordBytes = timeToSamples(prerecordingTime) * 2
 
   private var preRecordBuffer: Array<ByteArray>
   var preRecordBufferConsumed: Array<Int> = Array(2) { 0 }
@@ -156,8 +180,8 @@ constructor(
   private var totalRecordedBytes = 0
   var preRecordingJob: Job? = null
 
-  private var recordBuffers: ArrayList<ByteArray> = arrayListOf()
-  private var currentRecordBufferConsumed = 0
+  /** Audio captured during recording, on its way to the scratch wav file */
+  private var recordBuffers = PcmRingBuffer(_recorderBufferBytes, RECORD_RING_CAPACITY)
   private var recordingJob: Job? = null
   private var audioFileFlushJob: Job? = null
 
@@ -167,14 +191,27 @@ constructor(
   private lateinit var scratchRecordingFile: DataOutputStream
   private lateinit var scratchRecordingFileInitJob: Job
 
+  /** Output of the encoder that runs while recording */
+  private val scratchEncodedFileParams: Pair<String, String>
+    get() = Pair("", encoderProfile.extension)
+  private var liveEncoder: LiveAudioEncoder? = null
+  private var liveEncodedTake = false
+
+  /**
+   * Silence trimming config. Silence beyond the margin is found while the audio is written, and
+   * trimmed out of the wav file once recording stops. Off unless the task enables it.
+   */
+  private var trimSilence = false
+  private var silenceTrimmer: SilenceTrimmer? = null
+  private var silenceMarginMs = DEFAULT_SILENCE_MARGIN_MS
+  private var silenceThresholdDbfs = DEFAULT_SILENCE_THRESHOLD_DBFS
+
   /** Final recording file */
-  private val outputRecordingFileParams = Pair("", "m4a")
+  private val outputRecordingFileParams: Pair<String, String>
+    get() = Pair("", encoderProfile.extension)
   private lateinit var outputRecordingFilePath: String
   private var encodingJob: Job? = null
 
-  /** Playback progress thread */
-  private var playbackProgressThread: Thread? = null
-
   private var firstTimeActivityVisit: Boolean = true
 
   init {
@@ -197,6 +234,44 @@ constructor(
     _nextBtnState.value = n
   }
 
+  /**
+   * Read the silence trimming config of the task. Pick the encoder profile configured by the task and
+   * size the recording buffers for its sample rate. Fall back to the default profile if the
+   * microphone cannot capture at that rate.
+   */
+  override fun onTaskLoaded() {
+    // TODO: Move to Gson
+    trimSilence = try {
+      task.params.asJsonObject.get("trimSilence").asBoolean
+    } catch (e: Exception) {
+      false
+    }
+    silenceMarginMs = try {
+      task.params.asJsonObject.get("silenceMargin").asInt
+    } catch (e: Exception) {
+      DEFAULT_SILENCE_MARGIN_MS
+    }
+    silenceThresholdDbfs = try {
+      task.params.asJsonObject.get("silenceThreshold").asDouble
+    } catch (e: Exception) {
+      DEFAULT_SILENCE_THRESHOLD_DBFS
+    }
+
+    var profile = EncoderProfile.fromTaskParams(task.params)
+    if (AudioRecord.getMinBufferSize(profile.sampleRate, AUDIO_CHANNEL, AUDIO_ENCODING) <= 0) {
+      profile = EncoderProfile.DEFAULT
+    }
+    if (profile == encoderProfile) return
+
+    encoderProfile = profile
+    _minBufferSize = AudioRecord.getMinBufferSize(sampleRate, AUDIO_CHANNEL, AUDIO_ENCODING)
+    _recorderBufferSize = _minBufferSize * 4
+    _recorderBufferBytes = _recorderBufferSize
+    maxPreRecordBytes = timeToSamples(prerecordingTime) * 2
+    preRecordBuffer = Array(2) { ByteArray(maxPreRecordBytes) }
+    recordBuffers = PcmRingBuffer(_recorderBufferBytes, RECORD_RING_CAPACITY)
+  }
+
   override fun setupMicrotask() {
 
     /** Get the scratch and output file paths */
@@ -527,7 +602,7 @@ constructor(
       setButtonStates(ENABLED, ENABLED, ENABLED, ENABLED)
 
       val mPlayer = MediaPlayer()
-      mPlayer.setDataSource(outputRecordingFilePath)
+      mPlayer.setDataSource(getPlayableRecordingFilePath())
       mPlayer.prepare()
       resetRecordingLength(mPlayer.duration)
       mPlayer.release()
@@ -577,8 +652,7 @@ constructor(
        */
       ActivityState.RECORDING -> {
         if (!isPrerecordingState(previousActivityState)) initializeAndStartRecorder()
-        _playbackProgressPbProgress.value = 0
-        recordBuffers = arrayListOf()
+        playbackProgress.reset()
         writeAudioDataToRecordBuffer()
       }
 
@@ -610,7 +684,6 @@ constructor(
 
       /** COMPLETED: release the media player */
       ActivityState.COMPLETED -> {
-        playbackProgressThread?.join()
         setButtonStates(ENABLED, ENABLED, ENABLED, ENABLED)
         releasePlayer()
       }
@@ -649,7 +722,7 @@ constructor(
         } else if (previousActivityState == ActivityState.COMPLETED_PRERECORDING) {
           initializePlayer()
           mediaPlayer!!.setOnCompletionListener {
-            _playbackProgressPbProgress.value = _playbackProgressPbMax.value
+            playbackProgress.complete()
             setButtonStates(
               ButtonState.ENABLED,
               ButtonState.ENABLED,
@@ -658,7 +731,7 @@ constructor(
             )
             setActivityState(ActivityState.COMPLETED_PRERECORDING)
           }
-          playFile(outputRecordingFilePath)
+          playFile(getPlayableRecordingFilePath())
         }
         updatePlaybackProgress(ActivityState.OLD_PLAYING)
       }
@@ -764,6 +837,8 @@ constructor(
          */
         ActivityState.RECORDING -> {
           recordingJob?.join()
+          liveEncoder?.cancel()
+          liveEncoder = null
           preRecordBufferConsumed[0] = 0
           preRecordBufferConsumed[1] = 0
           releaseRecorder()
@@ -819,21 +894,13 @@ constructor(
     val player: MediaPlayer = mediaPlayer!!
     player.setDataSource(mediaFilePath)
     player.prepare()
-    _playbackProgressPbMax.value = player.duration
     player.start()
   }
 
   /** Update the progress bar for the player as long as the activity is in the specific state. */
   private fun updatePlaybackProgress(state: ActivityState) {
-    val runnable = Runnable {
-      while (state == activityState) {
-        val currentPosition = mediaPlayer?.currentPosition
-        _playbackProgressPbProgress.value = currentPosition ?: _playbackProgressPbProgress.value
-        Thread.sleep(100)
-      }
-    }
-    playbackProgressThread = Thread(runnable)
-    playbackProgressThread?.start()
+    val player = mediaPlayer ?: return
+    playbackProgress.start(player) { state == activityState }
   }
 
   /** Initialize [audioRecorder] */
@@ -841,7 +908,7 @@ constructor(
     audioRecorder =
       AudioRecord(
         MediaRecorder.AudioSource.MIC,
-        SAMPLE_RATE,
+        sampleRate,
         AUDIO_CHANNEL,
         AUDIO_ENCODING,
         _recorderBufferSize
@@ -894,8 +961,8 @@ constructor(
   }
 
   /**
-   * Start recording. Wait for prerecording to complete, if coming from prerecording state. Write
-   * recorded data directly to the wav file.
+   * Start recording. Wait for prerecording to complete, if coming from prerecording state. Captured
+   * audio goes through [recordBuffers] and is streamed to the wav file while recording continues.
    */
   private fun writeAudioDataToRecordBuffer() {
     recordingJob =
@@ -908,117 +975,189 @@ constructor(
         totalRecordedBytes =
           if (totalRecordedBytes > maxPreRecordBytes) maxPreRecordBytes else totalRecordedBytes
 
-        var data = ByteArray(_recorderBufferBytes)
-        currentRecordBufferConsumed = 0
-        var remainingSpace = _recorderBufferBytes
+        recordBuffers.reset()
+        val fileWriterJob = launch { streamRecordBuffersToWavFile() }
 
         var readBytes = 0
         while (activityState == ActivityState.RECORDING || readBytes > 0) {
-          readBytes = audioRecorder!!.read(data, currentRecordBufferConsumed, remainingSpace)
+          val buffer = recordBuffers.claim()
+          if (buffer == null) {
+            // The file writer is behind. The recorder's internal buffer absorbs the short wait.
+            delay(RECORD_RING_POLL_INTERVAL)
+            continue
+          }
+
+          readBytes = audioRecorder!!.read(buffer, 0, buffer.size)
           if (readBytes > 0) {
-            currentRecordBufferConsumed += readBytes
-            remainingSpace -= readBytes
-            if (remainingSpace == 0) {
-              recordBuffers.add(data)
-              data = ByteArray(_recorderBufferBytes)
-              currentRecordBufferConsumed = 0
-              remainingSpace = _recorderBufferBytes
-            }
+            recordBuffers.publish(readBytes)
             totalRecordedBytes += readBytes
             resetRecordingLength()
           }
         }
 
-        recordBuffers.add(data)
+        recordBuffers.close()
+        fileWriterJob.join()
       }
   }
 
-  /** Finish recording and finalize the wav file (update the file size) */
-  private fun finishRecordingAndFinalizeWavFile() {
-    runBlocking {
-      audioFileFlushJob =
-        CoroutineScope(Dispatchers.IO).launch {
-          delay(postRecordingTime.toLong())
-          audioRecorder!!.stop()
+  /**
+   * Write the prerecorded audio and then the contents of [recordBuffers] to the scratch wav file and
+   * the live encoder, as they are captured. Returns once the capture loop has closed the ring
+   * and it has been drained. If enabled, the audio goes through a [SilenceTrimmer] that finds the
+   * silence to trim, and the trimmed amounts are logged. The audio to keep is only known once
+   * recording stops, so a take that is trimmed is not encoded live, but from the trimmed wav file.
+   */
+  private suspend fun streamRecordBuffersToWavFile() {
+    scratchRecordingFileInitJob.join()
+
+    liveEncodedTake = false
+    liveEncoder =
+      if (trimSilence) {
+        null
+      } else {
+        try {
+          LiveAudioEncoder(getAssignmentScratchFilePath(scratchEncodedFileParams), encoderProfile)
+        } catch (e: Exception) {
+          // No encoder available. The wav file is encoded after recording instead.
+          null
+        }
+      }
 
-          recordingJob!!.join()
-          audioRecorder!!.release()
+    val trimmer =
+      if (trimSilence) {
+        SilenceTrimmer(sampleRate, silenceMarginMs, silenceThresholdDbfs, scratchRecordingFile)
+      } else {
+        null
+      }
+    silenceTrimmer = trimmer
 
-          /** Write data to file */
-          scratchRecordingFileInitJob.join()
+    var writtenBytes = 0
+    if (trimmer != null) {
+      writePrerecordBufferToWavFile(trimmer)
+    } else {
+      writtenBytes = writePrerecordBufferToWavFile(scratchRecordingFile)
+      liveEncoder?.let { writePrerecordBufferToWavFile(it) }
+    }
 
-          /** Write the prerecord buffer to file */
-          val bufferIndex = currentPreRecordBufferIndex
-          val otherIndex = 1 - bufferIndex
-          var currentBufferBytes = preRecordBufferConsumed[bufferIndex]
-          val otherBufferBytes = preRecordBufferConsumed[otherIndex]
+    while (true) {
+      // Check for close before draining, so that the last published buffers are not missed
+      val closed = recordBuffers.isClosed
+      val drainedBytes =
+        if (trimmer != null) {
+          recordBuffers.drainTo(trimmer)
+        } else {
+          recordBuffers.drainTo(scratchRecordingFile, liveEncoder)
+        }
+      writtenBytes += drainedBytes
 
-          if (currentBufferBytes < 0) {
-            currentBufferBytes = 0
-          }
+      if (drainedBytes == 0) {
+        if (closed) break
+        delay(RECORD_RING_POLL_INTERVAL)
+      }
+    }
 
-          val currentBuffer = preRecordBuffer[bufferIndex]
-          val otherBuffer = preRecordBuffer[otherIndex]
+    if (trimmer != null) {
+      writtenBytes = trimmer.writtenBytes
 
-          // If other buffer is not empty, first write tail from other buffer
-          if (otherBufferBytes != 0) {
-            scratchRecordingFile.write(
-              otherBuffer,
-              currentBufferBytes,
-              maxPreRecordBytes - currentBufferBytes
-            )
-            totalRecordedBytes = maxPreRecordBytes - currentBufferBytes
-          }
+      // log the silence to trim
+      val message = JsonObject()
+      message.addProperty("type", "silence-trim")
+      message.addProperty("speech", trimmer.speechDetected)
+      message.addProperty("leading", samplesToTime(trimmer.leadingTrimmedBytes / 2))
+      message.addProperty("trailing", samplesToTime(trimmer.trailingTrimmedBytes / 2))
+      log(message)
+    }
 
-          // write current buffer
-          scratchRecordingFile.write(currentBuffer, 0, currentBufferBytes)
-          totalRecordedBytes += currentBufferBytes
+    totalRecordedBytes = writtenBytes
+  }
 
-          /** Write the main record buffer */
-          for (i in 0 until recordBuffers.lastIndex) {
-            scratchRecordingFile.write(recordBuffers[i], 0, _recorderBufferBytes)
-            totalRecordedBytes += _recorderBufferBytes
-          }
+  /** Write the prerecord buffer to [output]. Returns the number of bytes written. */
+  private fun writePrerecordBufferToWavFile(output: OutputStream): Int {
+    val bufferIndex = currentPreRecordBufferIndex
+    val otherIndex = 1 - bufferIndex
+    var currentBufferBytes = preRecordBufferConsumed[bufferIndex]
+    val otherBufferBytes = preRecordBufferConsumed[otherIndex]
 
-          /** Write the last buffer */
-          try {
-            if (currentRecordBufferConsumed > 0) {
-              val lastBuffer = recordBuffers.last()
-              scratchRecordingFile.write(lastBuffer, 0, currentRecordBufferConsumed)
-              totalRecordedBytes += currentRecordBufferConsumed
-            }
-          } catch (e: Exception) {
-            // Ignore (rare) errors
-          }
+    if (currentBufferBytes < 0) {
+      currentBufferBytes = 0
+    }
+
+    val currentBuffer = preRecordBuffer[bufferIndex]
+    val otherBuffer = preRecordBuffer[otherIndex]
+    var writtenBytes = 0
 
-          resetRecordingLength()
+    // If other buffer is not empty, first write tail from other buffer
+    if (otherBufferBytes != 0) {
+      output.write(
+        otherBuffer,
+        currentBufferBytes,
+        maxPreRecordBytes - currentBufferBytes
+      )
+      writtenBytes = maxPreRecordBytes - currentBufferBytes
+    }
 
-          /** Close the file */
-          scratchRecordingFile.close()
+    // write current buffer
+    output.write(currentBuffer, 0, currentBufferBytes)
+    writtenBytes += currentBufferBytes
 
-          /** Fix the file size fields in the wav file */
-          val dataSize = totalRecordedBytes
-          val scratchFile = RandomAccessFile(scratchRecordingFilePath, "rw")
-          writeIntAtLocation(scratchFile, dataSize + 36, 4)
-          writeIntAtLocation(scratchFile, dataSize, 40)
-          scratchFile.close()
-        }
+    return writtenBytes
+  }
 
-      /**
-       * If still in recorded state, switch to playback. User may have stopped activity by pressing
-       * home button.
-       */
+  /**
+   * Finish recording and finalize the wav file. The audio is already in the file, so only the size
+   * fields of the header have to be updated, and the live encoder only has to be drained. If silence
+   * trimming is enabled, there is no live encoder. The trimmed wav file is encoded in the background.
+   */
+  private fun finishRecordingAndFinalizeWavFile() {
+    audioFileFlushJob =
       CoroutineScope(Dispatchers.IO).launch {
-        audioFileFlushJob!!.join()
-        if (activityState == ActivityState.RECORDED) {
-          if (noForcedReplay) {
-            setButtonStates(ENABLED, ENABLED, ENABLED, ENABLED)
-            setActivityState(ActivityState.COMPLETED)
-          } else {
-            setButtonStates(DISABLED, DISABLED, ACTIVE, DISABLED)
-            setActivityState(ActivityState.FIRST_PLAYBACK)
+        delay(postRecordingTime.toLong())
+        audioRecorder!!.stop()
+
+        recordingJob!!.join()
+        audioRecorder!!.release()
+
+        val trimmer = silenceTrimmer
+        silenceTrimmer = null
+        liveEncodedTake = liveEncoder?.finish() ?: false
+        liveEncoder = null
+
+        /** Close the file */
+        scratchRecordingFile.close()
+
+        /** Trim the silence out of the file */
+        if (trimmer != null) {
+          try {
+            totalRecordedBytes = trimmer.trim(File(scratchRecordingFilePath), WAV_HEADER_SIZE)
+          } catch (e: IOException) {
+            // The file is left untrimmed
           }
         }
+
+        resetRecordingLength()
+
+        /** Fix the file size fields in the wav file */
+        val dataSize = totalRecordedBytes
+        val scratchFile = RandomAccessFile(scratchRecordingFilePath, "rw")
+        writeIntAtLocation(scratchFile, dataSize + 36, 4)
+        writeIntAtLocation(scratchFile, dataSize, 40)
+        scratchFile.close()
+      }
+
+    /**
+     * If still in recorded state, switch to playback. User may have stopped activity by pressing
+     * home button.
+     */
+    CoroutineScope(Dispatchers.IO).launch {
+      audioFileFlushJob!!.join()
+      if (activityState == ActivityState.RECORDED) {
+        if (noForcedReplay) {
+          setButtonStates(ENABLED, ENABLED, ENABLED, ENABLED)
+          setActivityState(ActivityState.COMPLETED)
+        } else {
+          setButtonStates(DISABLED, DISABLED, ACTIVE, DISABLED)
+          setActivityState(ActivityState.FIRST_PLAYBACK)
+        }
       }
     }
   }
@@ -1032,30 +1171,63 @@ constructor(
     writeInt(scratchRecordingFile, 16)
     writeShort(scratchRecordingFile, 1.toShort())
     writeShort(scratchRecordingFile, 1.toShort())
-    writeInt(scratchRecordingFile, SAMPLE_RATE)
-    writeInt(scratchRecordingFile, SAMPLE_RATE * 2)
+    writeInt(scratchRecordingFile, sampleRate)
+    writeInt(scratchRecordingFile, sampleRate * 2)
     writeShort(scratchRecordingFile, 2.toShort())
     writeShort(scratchRecordingFile, 16.toShort())
     writeString(scratchRecordingFile, "data")
     writeInt(scratchRecordingFile, 0)
   }
 
-  /** Encode the scratch wav recording file into a compressed main file. */
+  /**
+   * Move the recording encoded during capture to the main output file. If live encoding was not
+   * possible, commit the scratch wav recording and queue it to be encoded in the background.
+   */
   private suspend fun encodeRecording() {
-    CoroutineScope(Dispatchers.IO)
-      .launch { RawToAACEncoder().encode(scratchRecordingFilePath, outputRecordingFilePath) }
-      .join()
+    withContext(Dispatchers.IO) {
+      val assignmentId = microtaskAssignmentIDs[currentAssignmentIndex]
+      val encodedFile = File(getAssignmentScratchFilePath(scratchEncodedFileParams))
+      val outputFile = File(outputRecordingFilePath)
+
+      // An older take of this assignment may still be queued
+      EncodeRecordingWorker.cancel(workManager, fileDirPath, assignmentId)
+      if (outputFile.exists()) outputFile.delete()
+
+      val moved = liveEncodedTake && encodedFile.renameTo(outputFile)
+      if (!moved) {
+        val pendingFilePath = EncodeRecordingWorker.getPendingRecordingFilePath(fileDirPath, assignmentId)
+        check(File(scratchRecordingFilePath).renameTo(File(pendingFilePath))) { "Failed to commit the recording" }
+        EncodeRecordingWorker.enqueue(
+          workManager,
+          assignmentId,
+          pendingFilePath,
+          outputRecordingFilePath,
+          encoderProfile
+        )
+      }
+    }
     addOutputFile("recording", outputRecordingFileParams)
   }
 
+  /**
+   * Get the file to play back the saved recording of the current assignment from. This is the wav
+   * recording while it is still waiting to be encoded.
+   */
+  private fun getPlayableRecordingFilePath(): String {
+    if (File(outputRecordingFilePath).exists()) return outputRecordingFilePath
+    val pendingFile =
+      EncodeRecordingWorker.getPendingRecordingFile(fileDirPath, microtaskAssignmentIDs[currentAssignmentIndex])
+    return pendingFile?.path ?: outputRecordingFilePath
+  }
+
   /** Helper method to convert number of [samples] to time in milliseconds */
   private fun samplesToTime(samples: Int): Int {
-    return ((samples.toFloat() / SAMPLE_RATE) * 1000).toInt()
+    return ((samples.toFloat() / sampleRate) * 1000).toInt()
   }
 
   /** Helper methods to convert [time] in milliseconds to number of samples */
   private fun timeToSamples(time: Int): Int {
-    return time * SAMPLE_RATE / 1000
+    return time * sampleRate / 1000
   }
 
   /** Helper methods to write data in little endian format */
@@ -1094,6 +1266,7 @@ constructor(
 
   /** Release the media player and hide seek bar */
   private fun releasePlayer() {
+    playbackProgress.stop()
     mediaPlayer?.stop()
     mediaPlayer?.reset()
     mediaPlayer?.release()
@@ -12,6 +12,7 @@ import com.microsoft.research.karya.data.repo.MicroTaskRepository
 import com.microsoft.research.karya.data.repo.TaskRepository
 import com.microsoft.research.karya.injection.qualifier.FilesDir
 import com.microsoft.research.karya.ui.scenarios.common.BaseMTRendererViewModel
+import com.microsoft.research.karya.utils.PlaybackProgressTicker
 import dagger.hilt.android.lifecycle.HiltViewModel
 import kotlinx.coroutines.flow.MutableStateFlow
 import kotlinx.coroutines.flow.asStateFlow
@@ -75,7 +76,6 @@ constructor(
   private var volumeRating = R.string.rating_undefined
   private var reviewCompleted = false
 
-  private lateinit var playbackProgressThread: Thread
   private val GREEN_COLOR = Color.parseColor("#33CC33")
 
   // Defining Mutable State Flows
@@ -88,11 +88,10 @@ constructor(
   private val _playbackCentiSecondsTvText: MutableStateFlow<String> = MutableStateFlow("")
   val playbackCentiSecondsTvText = _playbackCentiSecondsTvText.asStateFlow()
 
-  private val _playbackProgressPbMax: MutableStateFlow<Int> = MutableStateFlow(0)
-  val playbackProgressPbMax = _playbackProgressPbMax.asStateFlow()
-
-  private val _playbackProgress: MutableStateFlow<Int> = MutableStateFlow(0)
-  val playbackProgress = _playbackProgress.asStateFlow()
+  /** Playback position and duration of [mediaPlayer] */
+  private val playbackProgressTicker = PlaybackProgressTicker(viewModelScope)
+  val playbackProgressPbMax = playbackProgressTicker.duration
+  val playbackProgress = playbackProgressTicker.position
 
   private val _navAndMediaBtnGroup: MutableStateFlow<Triple<ButtonState, ButtonState, ButtonState>> =
     MutableStateFlow(Triple(ButtonState.DISABLED, ButtonState.DISABLED, ButtonState.DISABLED))
@@ -149,8 +148,8 @@ constructor(
     try {
       mediaPlayer!!.prepare()
       resetRecordingLength(mediaPlayer!!.duration)
-      _playbackProgressPbMax.value = mediaPlayer!!.duration
-      _playbackProgress.value = 0
+      playbackProgressTicker.reset()
+      playbackProgressTicker.setDuration(mediaPlayer!!.duration)
 
       setActivityState(ActivityState.WAIT_FOR_PLAY)
     } catch (exception: Exception) {
@@ -201,7 +200,7 @@ constructor(
 
       /** Enable the review stage */
       ActivityState.REVIEW_ENABLED -> {
-        playbackProgressThread.join()
+        playbackProgressTicker.stop()
         setButtonStates(ButtonState.ENABLED, ButtonState.ENABLED, nextBtnState)
         _reviewEnabled.value = true
       }
@@ -269,6 +268,7 @@ constructor(
     /** Disable all buttons */
     setButtonStates(ButtonState.DISABLED, ButtonState.DISABLED, ButtonState.DISABLED)
 
+    playbackProgressTicker.stop()
     if (activityState == ActivityState.PLAYBACK) {
       mediaPlayer!!.stop()
     }
@@ -400,20 +400,8 @@ constructor(
 
   /** Update the progress bar for the player as long as the activity is in the specific state. */
   private fun updatePlaybackProgress(state: ActivityState) {
-    val runnable = Runnable {
-      while (state == activityState) {
-        val currentPosition =
-          try {
-            mediaPlayer?.currentPosition
-          } catch (e: Exception) {
-            null
-          }
-        _playbackProgress.value = currentPosition ?: _playbackProgress.value
-        Thread.sleep(100)
-      }
-    }
-    playbackProgressThread = Thread(runnable)
-    playbackProgressThread.start()
+    val player = mediaPlayer ?: return
+    playbackProgressTicker.start(player) { state == activityState }
   }
 
   /** Reset recording length */
@@ -15,7 +15,7 @@ import androidx.navigation.fragment.navArgs
 import com.microsoft.research.karya.R
 import com.microsoft.research.karya.ui.scenarios.common.BaseMTRendererFragment
 import com.microsoft.research.karya.ui.scenarios.transliteration.TransliterationViewModel.WordVerificationStatus
-import com.microsoft.research.karya.ui.scenarios.transliteration.validator.Validator
+import com.microsoft.research.karya.ui.scenarios.transliteration.validator.BatchValidator
 import com.microsoft.research.karya.utils.extensions.gone
 import com.microsoft.research.karya.utils.extensions.observe
 import com.microsoft.research.karya.utils.extensions.viewLifecycleScope
@@ -23,6 +23,8 @@ import com.microsoft.research.karya.utils.extensions.visible
 import dagger.hilt.android.AndroidEntryPoint
 import kotlinx.android.synthetic.main.item_float_word.view.*
 import kotlinx.android.synthetic.main.microtask_transliteration.*
+import kotlinx.coroutines.flow.single
+import kotlinx.coroutines.launch
 
 @AndroidEntryPoint
 class TransliterationMainFragment :
@@ -47,6 +49,13 @@ class TransliterationMainFragment :
     return view
   }
 
+  override fun setupTaskViews() {
+    /** record instruction */
+    val recordInstruction =
+      viewModel.task.params.asJsonObject.get("instruction").asString ?: ""
+    instructionTv.text = recordInstruction
+  }
+
   override fun onViewCreated(view: View, savedInstanceState: Bundle?) {
     super.onViewCreated(view, savedInstanceState)
 
@@ -60,18 +69,11 @@ class TransliterationMainFragment :
       }
     )
 
-    /** record instruction */
-    val recordInstruction =
-      viewModel.task.params.asJsonObject.get("instruction").asString ?: ""
-    instructionTv.text = recordInstruction
-
     addBtn.setOnClickListener { addWord() }
 
     textTransliteration.onSubmit { addWord() }
 
     nextBtn.setOnClickListener { onNextClick() }
-
-    Validator.init()
   }
 
   private fun addWord() {
@@ -104,19 +106,27 @@ class TransliterationMainFragment :
       return
     }
 
-    if (viewModel.mlFeedback
-      && !Validator.isValid(viewModel.sourceLanguage, viewModel.sourceWord, word)
-      && word != prevInvalidWord
-    ) {
-      prevInvalidWord = word
-      showError(
-        "This transliteration doesn't seem right. Please check it and " +
-          "press add again if you think its correct"
-      )
+    if (!viewModel.mlFeedback || word == prevInvalidWord) {
+      viewModel.addWord(word)
       return
     }
 
-    viewModel.addWord(word)
+    viewLifecycleScope.launch {
+      val (_, valid) = BatchValidator.validate(viewModel.sourceLanguage, viewModel.sourceWord, listOf(word)).single()
+      // The word may have been added while it was validated
+      if (viewModel.inputVariants.value!!.containsKey(word)) return@launch
+
+      if (!valid) {
+        prevInvalidWord = word
+        showError(
+          "This transliteration doesn't seem right. Please check it and " +
+            "press add again if you think its correct"
+        )
+        return@launch
+      }
+
+      viewModel.addWord(word)
+    }
   }
 
   private fun showError(error: String) {
@@ -69,8 +69,7 @@ constructor(
 
   var limit by Delegates.notNull<Int>()
 
-  override fun setupViewModel(taskId: String, incompleteMta: Int, completedMta: Int) {
-    super.setupViewModel(taskId, incompleteMta, completedMta)
+  override fun onTaskLoaded() {
     // TODO: Move to Gson
     allowValidation = try {
       task.params.asJsonObject.get("allowValidation").asBoolean
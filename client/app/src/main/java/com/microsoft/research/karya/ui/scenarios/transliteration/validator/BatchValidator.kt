@@ -0,0 +1,51 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.research.karya.ui.scenarios.transliteration.validator
+
+import android.util.LruCache
+import com.microsoft.research.karya.data.model.karya.enums.LanguageType
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.flow
+import kotlinx.coroutines.flow.flowOn
+
+/** Number of validation results remembered */
+private const val MEMO_SIZE = 1024
+
+/**
+ * Validates transliterations with [Validator] off the main thread. Results are remembered per
+ * (language, indic word, english word) in a bounded LRU memo shared by all microtasks, so a word that
+ * is typed again, or recurs in a later microtask, is not validated again.
+ */
+object BatchValidator {
+
+  private data class Key(val language: LanguageType, val indicWord: String, val engWord: String)
+
+  private val memo =
+    object : LruCache<Key, Boolean>(MEMO_SIZE) {
+      override fun create(key: Key): Boolean {
+        return Validator.isValid(key.language, key.indicWord, key.engWord)
+      }
+    }
+
+  /** Number of validations answered from the memo */
+  val hitCount: Int
+    get() = memo.hitCount()
+
+  /** Number of validations computed by the validator */
+  val missCount: Int
+    get() = memo.missCount()
+
+  /**
+   * Validate each of [engWords] as a transliteration of [indicWord] in [language]. Each word is
+   * emitted with its result, in order, as soon as it is validated.
+   */
+  fun validate(language: LanguageType, indicWord: String, engWords: List<String>): Flow<Pair<String, Boolean>> =
+    flow {
+        for (engWord in engWords) {
+          emit(engWord to memo.get(Key(language, indicWord, engWord)))
+        }
+      }
+      .flowOn(Dispatchers.Default)
+}
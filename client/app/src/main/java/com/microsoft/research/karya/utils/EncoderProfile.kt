@@ -0,0 +1,165 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.research.karya.utils
+
+import android.media.MediaCodec
+import android.media.MediaCodecInfo
+import android.media.MediaCodecList
+import android.media.MediaFormat
+import android.media.MediaMuxer
+import android.os.Build
+import androidx.work.Data
+import com.google.gson.JsonElement
+
+/** Task parameters that select the encoder profile of recordings */
+private const val AUDIO_PROFILE_PARAM = "audioProfile"
+private const val AUDIO_CODEC_PARAM = "audioCodec"
+private const val AUDIO_SAMPLE_RATE_PARAM = "audioSampleRate"
+private const val AUDIO_BIT_RATE_PARAM = "audioBitRate"
+
+/** Work data keys of a serialized profile */
+private const val CODEC_KEY = "encoderCodec"
+private const val SAMPLE_RATE_KEY = "encoderSampleRate"
+private const val BIT_RATE_KEY = "encoderBitRate"
+
+/** Codecs that recordings can be encoded with, and the container each of them is written to */
+enum class AudioCodec(
+  val paramName: String,
+  val mimeType: String,
+  val extension: String,
+  val muxerFormat: Int,
+  val aacProfile: Int?,
+  val minSdkVersion: Int,
+) {
+  AAC_LC(
+    "aac-lc",
+    MediaFormat.MIMETYPE_AUDIO_AAC,
+    "m4a",
+    MediaMuxer.OutputFormat.MUXER_OUTPUT_MPEG_4,
+    MediaCodecInfo.CodecProfileLevel.AACObjectLC,
+    Build.VERSION_CODES.LOLLIPOP
+  ),
+  AAC_HE(
+    "aac-he",
+    MediaFormat.MIMETYPE_AUDIO_AAC,
+    "m4a",
+    MediaMuxer.OutputFormat.MUXER_OUTPUT_MPEG_4,
+    MediaCodecInfo.CodecProfileLevel.AACObjectHE,
+    Build.VERSION_CODES.LOLLIPOP
+  ),
+  // The platform only has an Opus encoder and an Ogg muxer from Android 10
+  OPUS(
+    "opus",
+    MediaFormat.MIMETYPE_AUDIO_OPUS,
+    "ogg",
+    MediaMuxer.OutputFormat.MUXER_OUTPUT_OGG,
+    null,
+    Build.VERSION_CODES.Q
+  ),
+}
+
+/**
+ * Codec, sample rate and bit rate of encoded recordings. The sample rate is also the rate at which
+ * audio is captured, as the encoders do not resample.
+ */
+data class EncoderProfile(val codec: AudioCodec, val sampleRate: Int, val bitRate: Int) {
+
+  /** Extension of the files this profile encodes to */
+  val extension: String
+    get() = codec.extension
+
+  /** Format to configure a mono encoder with */
+  fun createOutputFormat(): MediaFormat {
+    val format = MediaFormat.createAudioFormat(codec.mimeType, sampleRate, 1)
+    codec.aacProfile?.let { format.setInteger(MediaFormat.KEY_AAC_PROFILE, it) }
+    format.setInteger(MediaFormat.KEY_BIT_RATE, bitRate)
+    return format
+  }
+
+  fun createEncoder(): MediaCodec {
+    return MediaCodec.createEncoderByType(codec.mimeType)
+  }
+
+  fun createMuxer(outputFilePath: String): MediaMuxer {
+    return MediaMuxer(outputFilePath, codec.muxerFormat)
+  }
+
+  /** Does this device have an encoder (and muxer) for this profile? */
+  fun isSupported(): Boolean {
+    if (Build.VERSION.SDK_INT < codec.minSdkVersion) return false
+    return try {
+      MediaCodecList(MediaCodecList.REGULAR_CODECS).findEncoderForFormat(createOutputFormat()) != null
+    } catch (e: Exception) {
+      false
+    }
+  }
+
+  /** Serialize the profile to pass it to a worker */
+  fun toData(): Data {
+    return Data.Builder()
+      .putString(CODEC_KEY, codec.name)
+      .putInt(SAMPLE_RATE_KEY, sampleRate)
+      .putInt(BIT_RATE_KEY, bitRate)
+      .build()
+  }
+
+  companion object {
+    /** Profile used when a task does not configure one */
+    val DEFAULT = EncoderProfile(AudioCodec.AAC_LC, 44100, 128000)
+
+    /** Named profiles that tasks can select with the "audioProfile" parameter */
+    private val NAMED_PROFILES =
+      mapOf(
+        "default" to DEFAULT,
+        // About 5x smaller than the default
+        "speech" to EncoderProfile(AudioCodec.AAC_HE, 16000, 24000),
+        // About 8x smaller than the default
+        "speech-opus" to EncoderProfile(AudioCodec.OPUS, 16000, 16000),
+      )
+
+    /**
+     * Get the profile configured by the task [params]. A named "audioProfile" is picked first, and
+     * "audioCodec", "audioSampleRate" and "audioBitRate" override its fields. A codec that this device
+     * cannot encode falls back to HE-AAC and then to the default profile, at the same rates.
+     */
+    fun fromTaskParams(params: JsonElement?): EncoderProfile {
+      val paramsObject = if (params != null && params.isJsonObject) params.asJsonObject else null
+      fun stringParam(key: String): String? =
+        try {
+          paramsObject?.get(key)?.asString
+        } catch (e: Exception) {
+          null
+        }
+      fun intParam(key: String): Int? =
+        try {
+          paramsObject?.get(key)?.asInt
+        } catch (e: Exception) {
+          null
+        }
+
+      val named = stringParam(AUDIO_PROFILE_PARAM)?.let { NAMED_PROFILES[it] } ?: DEFAULT
+      val codec = stringParam(AUDIO_CODEC_PARAM)?.let { name -> AudioCodec.values().find { it.paramName == name } }
+      val profile =
+        EncoderProfile(
+          codec ?: named.codec,
+          intParam(AUDIO_SAMPLE_RATE_PARAM)?.takeIf { it > 0 } ?: named.sampleRate,
+          intParam(AUDIO_BIT_RATE_PARAM)?.takeIf { it > 0 } ?: named.bitRate,
+        )
+
+      return listOf(profile, profile.copy(codec = AudioCodec.AAC_HE), profile.copy(codec = AudioCodec.AAC_LC))
+        .firstOrNull { it.isSupported() }
+        ?: DEFAULT
+    }
+
+    /** Deserialize a profile passed to a worker with [toData] */
+    fun fromData(data: Data): EncoderProfile {
+      val codec = data.getString(CODEC_KEY)?.let { name -> AudioCodec.values().find { it.name == name } }
+      return EncoderProfile(
+        codec ?: DEFAULT.codec,
+        data.getInt(SAMPLE_RATE_KEY, DEFAULT.sampleRate),
+        data.getInt(BIT_RATE_KEY, DEFAULT.bitRate),
+      )
+    }
+  }
+}
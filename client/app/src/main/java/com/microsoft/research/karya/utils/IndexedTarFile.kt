@@ -0,0 +1,209 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.research.karya.utils
+
+import com.microsoft.research.karya.utils.jtar.TarConstants
+import com.microsoft.research.karya.utils.jtar.TarEntry
+import com.microsoft.research.karya.utils.jtar.TarHeader
+import java.io.Closeable
+import java.io.File
+import java.io.IOException
+import java.io.InputStream
+import java.io.RandomAccessFile
+import java.nio.ByteBuffer
+import java.nio.MappedByteBuffer
+import java.nio.channels.FileChannel
+
+/** Offset of the magic string in a ustar header */
+private const val USTAR_MAGIC_OFFSET = 257
+
+/**
+ * Random access to the entries of an uncompressed (ustar) tar ball. The entries are located once, from
+ * their headers alone, and the index is saved to a sidecar file for later opens. An entry can then be
+ * read as a bounded region of the tar ball, or memory mapped, without extracting it. Gzipped tar balls
+ * are not seekable, and have to be extracted with [FileUtils].
+ */
+class IndexedTarFile private constructor(private val channel: FileChannel, private val entries: Map<String, Entry>) :
+  Closeable {
+
+  /** Location of the contents of an entry in the tar ball */
+  data class Entry(val name: String, val offset: Long, val size: Long)
+
+  val entryNames: Set<String>
+    get() = entries.keys
+
+  fun getEntry(name: String): Entry? = entries[name]
+
+  /**
+   * Open the entry [name] as a stream over its region of the tar ball, or return null if there is no
+   * such entry. Reads are positional, so the streams of different entries can be read concurrently.
+   */
+  fun openEntry(name: String): InputStream? {
+    val entry = entries[name] ?: return null
+    return ChannelRegionInputStream(channel, entry.offset, entry.size, closeChannel = false)
+  }
+
+  /** Memory map the contents of the entry [name], or return null if there is no such entry */
+  fun mapEntry(name: String): MappedByteBuffer? {
+    val entry = entries[name] ?: return null
+    return channel.map(FileChannel.MapMode.READ_ONLY, entry.offset, entry.size)
+  }
+
+  override fun close() {
+    channel.close()
+  }
+
+  companion object {
+
+    /** Is the file at [tarPath] an uncompressed ustar tar ball? */
+    fun isSeekable(tarPath: String): Boolean {
+      val file = File(tarPath)
+      if (file.length() < TarConstants.HEADER_BLOCK) return false
+
+      val magic = ByteArray(TarHeader.USTAR_MAGIC.length)
+      RandomAccessFile(file, "r").use { raf ->
+        raf.seek(USTAR_MAGIC_OFFSET.toLong())
+        raf.readFully(magic)
+      }
+      return String(magic, Charsets.US_ASCII) == TarHeader.USTAR_MAGIC
+    }
+
+    /**
+     * Open the tar ball at [tarPath] with the index at [indexPath], which is built first if it is
+     * missing or stale. Returns null if the tar ball is not seekable.
+     */
+    fun open(tarPath: String, indexPath: String): IndexedTarFile? {
+      if (!isSeekable(tarPath)) return null
+
+      val tarBall = File(tarPath)
+      val indexFile = File(indexPath)
+      val key = "${tarBall.length()}:${tarBall.lastModified()}"
+
+      val channel = RandomAccessFile(tarBall, "r").channel
+      try {
+        val entries = readIndex(indexFile, key) ?: buildIndex(channel).also { writeIndex(indexFile, key, it) }
+        return IndexedTarFile(channel, entries.associateBy { it.name })
+      } catch (e: Exception) {
+        channel.close()
+        throw e
+      }
+    }
+
+    /**
+     * Open the entry [name] of the tar ball at [tarPath] on its own. The tar ball is closed with the
+     * returned stream. Returns null if the tar ball is not seekable or has no such entry.
+     */
+    fun openEntry(tarPath: String, indexPath: String, name: String): InputStream? {
+      val tarFile = open(tarPath, indexPath) ?: return null
+      val entry = tarFile.getEntry(name)
+      if (entry == null) {
+        tarFile.close()
+        return null
+      }
+      return ChannelRegionInputStream(tarFile.channel, entry.offset, entry.size, closeChannel = true)
+    }
+
+    /** Locate the regular files in a tar ball by walking its headers */
+    private fun buildIndex(channel: FileChannel): List<Entry> {
+      val entries = mutableListOf<Entry>()
+      val header = ByteBuffer.allocate(TarConstants.HEADER_BLOCK)
+      val tarSize = channel.size()
+      var position = 0L
+
+      while (position + TarConstants.HEADER_BLOCK <= tarSize) {
+        header.clear()
+        while (header.hasRemaining()) {
+          if (channel.read(header, position + header.position()) < 0) throw IOException("Truncated tar header")
+        }
+
+        // The archive ends with a zero block
+        if (header.array().all { it == 0.toByte() }) break
+
+        val entry = TarEntry(header.array())
+        val offset = position + TarConstants.HEADER_BLOCK
+        val size = entry.size
+        if (offset + size > tarSize) throw IOException("Truncated tar entry ${entry.name}")
+
+        val linkFlag = entry.header.linkFlag
+        if ((linkFlag == TarHeader.LF_NORMAL || linkFlag == TarHeader.LF_OLDNORM) && !entry.isDirectory) {
+          entries.add(Entry(entry.name, offset, size))
+        }
+
+        // Contents are padded to a whole block
+        val blocks = (size + TarConstants.DATA_BLOCK - 1) / TarConstants.DATA_BLOCK
+        position = offset + blocks * TarConstants.DATA_BLOCK
+      }
+
+      return entries
+    }
+
+    /** Read the index saved for the tar ball with [key], or return null if there is none */
+    private fun readIndex(indexFile: File, key: String): List<Entry>? {
+      if (!indexFile.exists()) return null
+      val lines = indexFile.readLines()
+      if (lines.firstOrNull() != key) return null
+
+      return try {
+        lines.drop(1).map { line ->
+          val (name, offset, size) = line.split('\t')
+          Entry(name, offset.toLong(), size.toLong())
+        }
+      } catch (e: Exception) {
+        null
+      }
+    }
+
+    /** Save the index of the tar ball with [key]. Names with tabs or newlines cannot be saved. */
+    private fun writeIndex(indexFile: File, key: String, entries: List<Entry>) {
+      if (entries.any { it.name.contains('\t') || it.name.contains('\n') }) return
+
+      indexFile.parentFile?.mkdirs()
+      val tmpIndex = File("${indexFile.path}.tmp")
+      tmpIndex.writeText((listOf(key) + entries.map { "${it.name}\t${it.offset}\t${it.size}" }).joinToString("\n"))
+      tmpIndex.renameTo(indexFile)
+    }
+  }
+}
+
+/** Stream over [size] bytes of [channel] from [offset]. The channel is only closed with the stream if [closeChannel]. */
+private class ChannelRegionInputStream(
+  private val channel: FileChannel,
+  offset: Long,
+  size: Long,
+  private val closeChannel: Boolean,
+) : InputStream() {
+
+  private var position = offset
+  private val end = offset + size
+
+  override fun read(): Int {
+    val b = ByteArray(1)
+    return if (read(b, 0, 1) == -1) -1 else b[0].toInt() and 0xff
+  }
+
+  override fun read(b: ByteArray, off: Int, len: Int): Int {
+    if (len == 0) return 0
+    val remaining = end - position
+    if (remaining <= 0) return -1
+
+    val read = channel.read(ByteBuffer.wrap(b, off, minOf(len.toLong(), remaining).toInt()), position)
+    if (read < 0) return -1
+    position += read
+    return read
+  }
+
+  override fun skip(n: Long): Long {
+    val skipped = minOf(maxOf(n, 0L), end - position)
+    position += skipped
+    return skipped
+  }
+
+  override fun available(): Int {
+    return minOf(end - position, Int.MAX_VALUE.toLong()).toInt()
+  }
+
+  override fun close() {
+    if (closeChannel) channel.close()
+  }
+}
@@ -61,6 +61,12 @@ class MicrotaskInput(fileDirPath: String) : KaryaFileContainer("microtask-input"
     return "$directory/$fileName"
   }
 
+  /** Get the path of the entry index of a seekable microtask input tar ball */
+  fun getMicrotaskInputIndexPath(microtaskId: String): String {
+    val directory = getDirectory(microtaskId)
+    return "$directory/.index"
+  }
+
 }
 
 class MicrotaskAssignmentOutput(fileDirPath: String) :
@@ -0,0 +1,200 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.research.karya.utils
+
+import android.media.MediaCodec
+import android.media.MediaMuxer
+import java.io.File
+import java.io.OutputStream
+
+private const val CODEC_TIMEOUT_IN_US = 10000L
+private const val MAX_DRAIN_ATTEMPTS = 500
+
+/**
+ * Encoder that is fed 16-bit mono PCM, sampled at the rate of the [profile], while it is being
+ * captured. Bytes written to the stream
+ * are queued to a [MediaCodec] encoder, and encoded frames are muxed into [outputFilePath] as they
+ * come out. [finish] only has to drain the frames still in the codec.
+ *
+ * Writes never throw. If the codec fails, the encoder releases itself, ignores further input and
+ * [finish] returns false, so that the caller can fall back to encoding the raw recording.
+ *
+ * The encoder is not thread safe. Calls may come from different threads, but they must not overlap:
+ * callers serialize them by joining the job that made the previous call.
+ */
+class LiveAudioEncoder(
+  private val outputFilePath: String,
+  private val profile: EncoderProfile = EncoderProfile.DEFAULT,
+) : OutputStream() {
+
+  private val codec: MediaCodec
+  private val muxer: MediaMuxer
+  private val bufferInfo = MediaCodec.BufferInfo()
+  private var trackIndex = -1
+  private var muxerStarted = false
+  private var totalBytesQueued = 0L
+  private var released = false
+  private var failed = false
+
+  init {
+    val outputFile = File(outputFilePath)
+    if (outputFile.exists()) outputFile.delete()
+
+    muxer = profile.createMuxer(outputFile.absolutePath)
+
+    // An encoder that fails to set up is never released, so release what it opened so far here
+    try {
+      codec = profile.createEncoder()
+      try {
+        codec.configure(profile.createOutputFormat(), null, null, MediaCodec.CONFIGURE_FLAG_ENCODE)
+        codec.start()
+      } catch (e: Exception) {
+        codec.release()
+        throw e
+      }
+    } catch (e: Exception) {
+      muxer.release()
+      outputFile.delete()
+      throw e
+    }
+  }
+
+  override fun write(b: Int) {
+    write(byteArrayOf(b.toByte()), 0, 1)
+  }
+
+  /** Queue [len] bytes of PCM from [b] to the encoder, muxing whatever it has encoded so far */
+  override fun write(b: ByteArray, off: Int, len: Int) {
+    if (failed || released) return
+    try {
+      queue(b, off, len)
+    } catch (e: Exception) {
+      failed = true
+      release()
+    }
+  }
+
+  private fun queue(b: ByteArray, off: Int, len: Int) {
+    var offset = off
+    var remaining = len
+    while (remaining > 0) {
+      val index = codec.dequeueInputBuffer(CODEC_TIMEOUT_IN_US)
+      if (index < 0) {
+        // All input buffers are in use. Free some by draining the output.
+        drain(false)
+        continue
+      }
+
+      val inputBuffer = codec.getInputBuffer(index)!!
+      inputBuffer.clear()
+      val chunk = minOf(remaining, inputBuffer.remaining())
+      inputBuffer.put(b, offset, chunk)
+      codec.queueInputBuffer(index, 0, chunk, presentationTimeUs(), 0)
+
+      totalBytesQueued += chunk
+      offset += chunk
+      remaining -= chunk
+    }
+    drain(false)
+  }
+
+  /**
+   * Signal the end of the input, drain the encoder and finalize the output file. Returns true if the
+   * output file is complete.
+   */
+  fun finish(): Boolean {
+    if (failed || released) return false
+    return try {
+      var index = codec.dequeueInputBuffer(CODEC_TIMEOUT_IN_US)
+      var attempts = 0
+      while (index < 0 && attempts++ < MAX_DRAIN_ATTEMPTS) {
+        drain(false)
+        index = codec.dequeueInputBuffer(CODEC_TIMEOUT_IN_US)
+      }
+      if (index < 0) return false
+
+      codec.queueInputBuffer(index, 0, 0, presentationTimeUs(), MediaCodec.BUFFER_FLAG_END_OF_STREAM)
+      if (!drain(true) || !muxerStarted) return false
+
+      muxer.stop()
+      muxerStarted = false
+      true
+    } catch (e: Exception) {
+      false
+    } finally {
+      release()
+    }
+  }
+
+  /** Stop encoding and delete the partial output file */
+  fun cancel() {
+    release()
+    File(outputFilePath).delete()
+  }
+
+  override fun close() {
+    release()
+  }
+
+  /**
+   * Mux all the encoded frames available in the codec. If [endOfStream] is set, wait until the codec
+   * emits its last frame. Returns false if the last frame did not arrive in time.
+   */
+  private fun drain(endOfStream: Boolean): Boolean {
+    var attempts = 0
+    while (true) {
+      val index = codec.dequeueOutputBuffer(bufferInfo, if (endOfStream) CODEC_TIMEOUT_IN_US else 0)
+      when {
+        index == MediaCodec.INFO_TRY_AGAIN_LATER -> {
+          if (!endOfStream) return true
+          if (attempts++ >= MAX_DRAIN_ATTEMPTS) return false
+        }
+        index == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED -> {
+          trackIndex = muxer.addTrack(codec.outputFormat)
+          muxer.start()
+          muxerStarted = true
+        }
+        index >= 0 -> {
+          val encodedData = codec.getOutputBuffer(index)!!
+          // The codec config is already part of the output format given to the muxer
+          if (bufferInfo.flags and MediaCodec.BUFFER_FLAG_CODEC_CONFIG != 0) {
+            bufferInfo.size = 0
+          }
+          if (bufferInfo.size != 0 && muxerStarted) {
+            encodedData.position(bufferInfo.offset)
+            encodedData.limit(bufferInfo.offset + bufferInfo.size)
+            muxer.writeSampleData(trackIndex, encodedData, bufferInfo)
+          }
+          codec.releaseOutputBuffer(index, false)
+
+          if (bufferInfo.flags and MediaCodec.BUFFER_FLAG_END_OF_STREAM != 0) return true
+        }
+      }
+    }
+  }
+
+  /** Presentation time of the next PCM byte to be queued */
+  private fun presentationTimeUs(): Long {
+    return 1000000L * (totalBytesQueued / 2) / profile.sampleRate
+  }
+
+  private fun release() {
+    if (released) return
+    released = true
+
+    try {
+      codec.stop()
+    } catch (e: Exception) {
+      // The codec may already be in an error state
+    }
+    codec.release()
+
+    try {
+      if (muxerStarted) muxer.stop()
+    } catch (e: Exception) {
+      // Stopping a muxer that has no samples fails. The output is unusable in that case anyway.
+    }
+    muxer.release()
+  }
+}
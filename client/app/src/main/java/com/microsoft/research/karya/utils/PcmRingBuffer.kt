@@ -0,0 +1,73 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.research.karya.utils
+
+import java.io.OutputStream
+
+/**
+ * Lock-free single-producer/single-consumer ring of [capacity] reusable PCM buffers of [bufferSize]
+ * bytes each. The producer (audio capture) fills the buffer returned by [claim] and hands it over
+ * with [publish]; the consumer (file writer) drains the published buffers with [drainTo]. The
+ * buffers are allocated once, so capturing audio does not allocate.
+ *
+ * Only one thread may produce and only one thread may consume at a time. [reset] may only be called
+ * when neither side is active.
+ */
+class PcmRingBuffer(bufferSize: Int, private val capacity: Int) {
+
+  private val buffers = Array(capacity) { ByteArray(bufferSize) }
+  private val lengths = IntArray(capacity)
+
+  /** Number of buffers published so far. Written only by the producer. */
+  @Volatile private var head = 0L
+
+  /** Number of buffers drained so far. Written only by the consumer. */
+  @Volatile private var tail = 0L
+
+  /** Set by the producer after its last [publish] */
+  @Volatile
+  var isClosed = false
+    private set
+
+  /** Producer: buffer to be filled next, or null if the consumer has not freed any buffer yet */
+  fun claim(): ByteArray? {
+    return if (head - tail < capacity) buffers[(head % capacity).toInt()] else null
+  }
+
+  /** Producer: publish the first [length] bytes of the buffer returned by the last [claim] */
+  fun publish(length: Int) {
+    lengths[(head % capacity).toInt()] = length
+    // The volatile write makes the buffer contents visible to the consumer
+    head += 1
+  }
+
+  /** Producer: signal that no more buffers will be published */
+  fun close() {
+    isClosed = true
+  }
+
+  /**
+   * Consumer: write all the published buffers to [output], and to [teeOutput] if given. Returns the
+   * number of bytes drained.
+   */
+  fun drainTo(output: OutputStream, teeOutput: OutputStream? = null): Int {
+    var written = 0
+    val published = head
+    while (tail < published) {
+      val index = (tail % capacity).toInt()
+      output.write(buffers[index], 0, lengths[index])
+      teeOutput?.write(buffers[index], 0, lengths[index])
+      written += lengths[index]
+      tail += 1
+    }
+    return written
+  }
+
+  /** Empty the ring and reopen it for a new recording */
+  fun reset() {
+    head = 0
+    tail = 0
+    isClosed = false
+  }
+}
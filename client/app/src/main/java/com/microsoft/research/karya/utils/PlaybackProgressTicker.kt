@@ -0,0 +1,78 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.research.karya.utils
+
+import android.media.MediaPlayer
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.asStateFlow
+import kotlinx.coroutines.isActive
+import kotlinx.coroutines.launch
+
+/** Interval (in ms) at which the playback position is sampled */
+private const val PLAYBACK_TICK_INTERVAL = 100L
+
+/**
+ * Publishes the position and duration (in ms) of a [MediaPlayer] while it plays. The position is
+ * sampled on the main thread by a ticker coroutine in [scope], so nothing blocks and the ticker ends
+ * with the scope. [stop] must be called before the player is released.
+ */
+class PlaybackProgressTicker(private val scope: CoroutineScope) {
+
+  private val _position: MutableStateFlow<Int> = MutableStateFlow(0)
+  val position = _position.asStateFlow()
+
+  private val _duration: MutableStateFlow<Int> = MutableStateFlow(0)
+  val duration = _duration.asStateFlow()
+
+  private var tickerJob: Job? = null
+
+  /**
+   * Start sampling the position of [player] and publish its duration. Sampling stops on [stop], or
+   * once [whilePlaying] turns false.
+   */
+  fun start(player: MediaPlayer, whilePlaying: () -> Boolean = { true }) {
+    stop()
+    _duration.value = player.duration
+    tickerJob =
+      scope.launch(Dispatchers.Main) {
+        while (isActive && whilePlaying()) {
+          _position.value =
+            try {
+              player.currentPosition
+            } catch (e: IllegalStateException) {
+              // The player was released
+              break
+            }
+          delay(PLAYBACK_TICK_INTERVAL)
+        }
+      }
+  }
+
+  /** Stop sampling. The last position stays published. */
+  fun stop() {
+    tickerJob?.cancel()
+    tickerJob = null
+  }
+
+  /** Publish the [duration] of a player that is not playing yet */
+  fun setDuration(duration: Int) {
+    _duration.value = duration
+  }
+
+  /** Stop sampling and show the playback as complete */
+  fun complete() {
+    stop()
+    _position.value = _duration.value
+  }
+
+  /** Stop sampling and rewind the published position */
+  fun reset() {
+    stop()
+    _position.value = 0
+  }
+}
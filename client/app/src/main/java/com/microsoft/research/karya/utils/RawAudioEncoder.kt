@@ -0,0 +1,221 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.research.karya.utils
+
+import android.media.MediaCodec
+import android.media.MediaFormat
+import android.media.MediaMuxer
+import android.os.Handler
+import android.os.HandlerThread
+import android.os.Looper
+import kotlinx.coroutines.CancellableContinuation
+import kotlinx.coroutines.suspendCancellableCoroutine
+import java.io.File
+import java.io.FileInputStream
+import java.io.IOException
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+import java.nio.channels.FileChannel
+import kotlin.coroutines.resume
+import kotlin.coroutines.resumeWithException
+
+/** Size of the canonical header written in front of the PCM data of a wav file */
+private const val WAV_HEADER_SIZE = 44L
+private const val RIFF_MAGIC = 0x46464952 // "RIFF", little endian
+
+class RawAudioEncoder(private val profile: EncoderProfile = EncoderProfile.DEFAULT) {
+
+  /**
+   * Encode a raw 16-bit mono PCM (or wav) file, sampled at the rate of the [profile], to a file in
+   * the codec and container of the [profile]. The codec runs in asynchronous mode on a
+   * dedicated handler thread; input is read from the file straight into the codec's buffers.
+   * [onProgress] is called on that thread with the fraction of the input consumed so far. Cancelling
+   * the calling coroutine stops the codec and deletes the partial output file.
+   */
+  suspend fun encode(inputFilePath: String, outputFilePath: String, onProgress: (Float) -> Unit = {}) {
+    val encoderThread = HandlerThread("RawAudioEncoder")
+    encoderThread.start()
+    val handler = Handler(encoderThread.looper)
+
+    try {
+      suspendCancellableCoroutine<Unit> { continuation ->
+        handler.post {
+          // Cancelled before the encode started. The thread may already be quitting.
+          if (!continuation.isActive) return@post
+
+          // The codec is created on the handler thread, so that its callbacks are delivered there
+          val session =
+            try {
+              EncodeSession(inputFilePath, outputFilePath, onProgress, continuation)
+            } catch (e: Exception) {
+              continuation.resumeWithException(e)
+              return@post
+            }
+          continuation.invokeOnCancellation {
+            // The handler runs right away, on this thread, if the coroutine is already cancelled
+            if (Looper.myLooper() == encoderThread.looper) session.cancel() else handler.post { session.cancel() }
+          }
+          if (continuation.isActive) session.start()
+        }
+      }
+    } finally {
+      encoderThread.quitSafely()
+    }
+  }
+
+  /** State of a single encode. Only accessed from the encoder thread. */
+  private inner class EncodeSession(
+    inputFilePath: String,
+    private val outputFilePath: String,
+    private val onProgress: (Float) -> Unit,
+    private val continuation: CancellableContinuation<Unit>,
+  ) : MediaCodec.Callback() {
+
+    private val input: FileChannel = FileInputStream(inputFilePath).channel
+    private val inputSize: Long
+    private val codec: MediaCodec
+    private val muxer: MediaMuxer
+    private var audioTrackIdx = -1
+    private var muxerStarted = false
+    private var inputDone = false
+    private var totalBytesRead = 0L
+    private var finished = false
+
+    init {
+      // A session that fails to set up is never released, so release what it opened so far here
+      try {
+        // Skip the header of wav files, so that it is not encoded as audio
+        val magic = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN)
+        input.read(magic, 0)
+        val dataOffset = if (magic.position() == 4 && magic.getInt(0) == RIFF_MAGIC) WAV_HEADER_SIZE else 0L
+        input.position(dataOffset)
+        inputSize = maxOf(input.size() - dataOffset, 1L)
+
+        val outputFile = File(outputFilePath)
+        if (outputFile.exists()) outputFile.delete()
+        muxer = profile.createMuxer(outputFile.absolutePath)
+
+        try {
+          codec = profile.createEncoder()
+          try {
+            codec.setCallback(this)
+            codec.configure(profile.createOutputFormat(), null, null, MediaCodec.CONFIGURE_FLAG_ENCODE)
+          } catch (e: Exception) {
+            codec.release()
+            throw e
+          }
+        } catch (e: Exception) {
+          muxer.release()
+          outputFile.delete()
+          throw e
+        }
+      } catch (e: Exception) {
+        input.close()
+        throw e
+      }
+    }
+
+    fun start() {
+      try {
+        codec.start()
+      } catch (e: Exception) {
+        fail(e)
+      }
+    }
+
+    override fun onInputBufferAvailable(codec: MediaCodec, index: Int) {
+      if (finished || inputDone) return
+
+      try {
+        val inputBuffer = codec.getInputBuffer(index)!!
+        inputBuffer.clear()
+        val presentationTimeUs = 1000000L * (totalBytesRead / 2) / profile.sampleRate
+        val bytesRead = input.read(inputBuffer)
+
+        if (bytesRead == -1) { // -1 implies EOS
+          inputDone = true
+          codec.queueInputBuffer(index, 0, 0, presentationTimeUs, MediaCodec.BUFFER_FLAG_END_OF_STREAM)
+        } else {
+          totalBytesRead += bytesRead
+          codec.queueInputBuffer(index, 0, bytesRead, presentationTimeUs, 0)
+          onProgress(minOf(totalBytesRead.toFloat() / inputSize, 1f))
+        }
+      } catch (e: Exception) {
+        fail(e)
+      }
+    }
+
+    override fun onOutputBufferAvailable(codec: MediaCodec, index: Int, info: MediaCodec.BufferInfo) {
+      if (finished) return
+
+      try {
+        val encodedData = codec.getOutputBuffer(index)!!
+        if (info.flags and MediaCodec.BUFFER_FLAG_CODEC_CONFIG == 0 && info.size != 0 && muxerStarted) {
+          encodedData.position(info.offset)
+          encodedData.limit(info.offset + info.size)
+          muxer.writeSampleData(audioTrackIdx, encodedData, info)
+        }
+        codec.releaseOutputBuffer(index, false)
+
+        if (info.flags and MediaCodec.BUFFER_FLAG_END_OF_STREAM != 0) {
+          muxer.stop()
+          muxerStarted = false
+          release()
+          continuation.resume(Unit)
+        }
+      } catch (e: Exception) {
+        fail(e)
+      }
+    }
+
+    override fun onOutputFormatChanged(codec: MediaCodec, format: MediaFormat) {
+      if (finished) return
+
+      try {
+        audioTrackIdx = muxer.addTrack(format)
+        muxer.start()
+        muxerStarted = true
+      } catch (e: Exception) {
+        fail(e)
+      }
+    }
+
+    override fun onError(codec: MediaCodec, e: MediaCodec.CodecException) {
+      fail(e)
+    }
+
+    /** Stop encoding and delete the partial output. The coroutine is already cancelled. */
+    fun cancel() {
+      if (finished) return
+      release()
+      File(outputFilePath).delete()
+    }
+
+    private fun fail(e: Exception) {
+      if (finished) return
+      release()
+      File(outputFilePath).delete()
+      continuation.resumeWithException(IOException("Failed to encode $outputFilePath", e))
+    }
+
+    private fun release() {
+      finished = true
+      input.close()
+
+      try {
+        codec.stop()
+      } catch (e: Exception) {
+        // The codec may already be in an error state
+      }
+      codec.release()
+
+      try {
+        if (muxerStarted) muxer.stop()
+      } catch (e: Exception) {
+        // The output is deleted in this case
+      }
+      muxer.release()
+    }
+  }
+}
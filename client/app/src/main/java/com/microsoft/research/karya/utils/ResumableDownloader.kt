@@ -0,0 +1,133 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.research.karya.utils
+
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.async
+import kotlinx.coroutines.awaitAll
+import kotlinx.coroutines.coroutineScope
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.Semaphore
+import kotlinx.coroutines.sync.withLock
+import kotlinx.coroutines.sync.withPermit
+import kotlinx.coroutines.withContext
+import okhttp3.ResponseBody
+import retrofit2.Response
+import java.io.File
+import java.io.FileOutputStream
+import java.io.IOException
+
+private const val HTTP_PARTIAL_CONTENT = 206
+private const val HTTP_RANGE_NOT_SATISFIABLE = 416
+
+/**
+ * Downloads files through a `.part` file next to the destination. An interrupted download, even
+ * from a killed process, resumes from the size of the `.part` file with an HTTP Range request. At
+ * most [maxConcurrentDownloads] files are downloaded at a time, and the combined bandwidth is capped
+ * at [maxBytesPerSecond] (no cap if 0).
+ */
+class ResumableDownloader(private val maxConcurrentDownloads: Int, maxBytesPerSecond: Long) {
+
+  /**
+   * File to download to [filePath]. [fetch] requests the file with the given Range header value
+   * (null for the whole file). If [md5sum] is not null, the download is verified against it.
+   */
+  class Request(
+    val filePath: String,
+    val md5sum: String?,
+    val fetch: suspend (range: String?) -> Response<ResponseBody>,
+  )
+
+  private val throttle = BandwidthThrottle(maxBytesPerSecond)
+
+  /**
+   * Download all [requests]. [onComplete] is called after each request with the error if it
+   * failed. A failed request does not stop the others.
+   */
+  suspend fun downloadAll(requests: List<Request>, onComplete: suspend (Request, Throwable?) -> Unit) =
+    coroutineScope {
+      val permits = Semaphore(maxConcurrentDownloads.coerceAtLeast(1))
+      requests
+        .map { request ->
+          async(Dispatchers.IO) {
+            permits.withPermit {
+              val error =
+                try {
+                  download(request)
+                  null
+                } catch (e: Exception) {
+                  e
+                }
+              onComplete(request, error)
+            }
+          }
+        }
+        .awaitAll()
+    }
+
+  /** Download a single [request], resuming from its `.part` file if there is one */
+  suspend fun download(request: Request) =
+    withContext(Dispatchers.IO) {
+      val file = File(request.filePath)
+      val partFile = File("${request.filePath}.part")
+      file.parentFile?.let { FileUtils.createDirectory(it.path) }
+
+      val offset = if (partFile.exists()) partFile.length() else 0L
+      val response = request.fetch(if (offset > 0) "bytes=$offset-" else null)
+
+      // The part file already holds the whole file
+      val complete = offset > 0 && response.code() == HTTP_RANGE_NOT_SATISFIABLE
+
+      if (!complete) {
+        if (!response.isSuccessful) {
+          throw IOException("Failed to get file")
+        }
+
+        // Servers that ignore the range send the whole file
+        val append = response.code() == HTTP_PARTIAL_CONTENT
+        response.body()!!.byteStream().use { inputStream ->
+          FileOutputStream(partFile, append).use { outputStream ->
+            val buffer = ByteArray(16384)
+            var readBytes: Int
+            while (inputStream.read(buffer).also { readBytes = it } >= 0) {
+              throttle.acquire(readBytes)
+              outputStream.write(buffer, 0, readBytes)
+            }
+          }
+        }
+      } else {
+        response.body()?.close()
+      }
+
+      if (request.md5sum != null && FileUtils.getMD5Digest(partFile.path) != request.md5sum) {
+        partFile.delete()
+        throw IOException("Checksum mismatch for ${file.name}")
+      }
+
+      if (!partFile.renameTo(file)) {
+        throw IOException("Could not move ${partFile.name} into place")
+      }
+    }
+}
+
+/** Shared token bucket that spaces out reads so that their combined rate stays under [bytesPerSecond] */
+private class BandwidthThrottle(private val bytesPerSecond: Long) {
+  private val mutex = Mutex()
+  private var nextFreeAt = System.nanoTime()
+
+  suspend fun acquire(bytes: Int) {
+    if (bytesPerSecond <= 0 || bytes <= 0) return
+
+    val waitNanos =
+      mutex.withLock {
+        val now = System.nanoTime()
+        val start = maxOf(now, nextFreeAt)
+        nextFreeAt = start + bytes * 1_000_000_000L / bytesPerSecond
+        start - now
+      }
+
+    if (waitNanos > 0) delay(waitNanos / 1_000_000)
+  }
+}
@@ -0,0 +1,163 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.research.karya.utils
+
+import java.io.File
+import java.io.IOException
+import java.io.OutputStream
+import java.io.RandomAccessFile
+import java.nio.ByteBuffer
+import kotlin.math.pow
+
+/** Length of the frames that are classified as speech or silence */
+private const val FRAME_MS = 20
+
+/** Number of consecutive loud frames that count as speech. Shorter bursts (taps, clicks) do not. */
+private const val MIN_SPEECH_FRAMES = 3
+
+/** Size of the buffer through which the kept audio is moved when a file is trimmed */
+private const val TRIM_BUFFER_SIZE = 64 * 1024
+
+/**
+ * Filter that finds the silence before the first and after the last speech in a stream of 16-bit mono
+ * PCM. A frame is silent if its RMS level is below [thresholdDbfs]. All the audio is passed on to
+ * [output], so nothing is lost while recording. Once the stream ends, [trim] cuts the silence beyond
+ * [marginMs] on either side of the speech out of the file it was written to. If no speech is found,
+ * nothing is trimmed.
+ */
+class SilenceTrimmer(
+  sampleRate: Int,
+  marginMs: Int,
+  thresholdDbfs: Double,
+  private val output: OutputStream,
+) : OutputStream() {
+
+  private val frameBytes = sampleRate * FRAME_MS / 1000 * 2
+  private val marginBytes = sampleRate * marginMs / 1000 * 2
+
+  /** Mean square sample value at the threshold */
+  private val thresholdPower = (32768.0 * 10.0.pow(thresholdDbfs / 20)).pow(2)
+
+  private val frame = ByteArray(frameBytes)
+  private var frameLength = 0
+
+  /** Number of consecutive loud frames up to the last complete frame */
+  private var loudFrames = 0
+
+  /** Offset of the first byte of the first speech */
+  private var speechStart = 0
+
+  /** Offset of the byte after the last speech */
+  private var speechEnd = 0
+
+  var speechDetected = false
+    private set
+
+  /** Bytes of audio written out */
+  var writtenBytes = 0
+    private set
+
+  /** Bytes of audio to trim before the speech */
+  val leadingTrimmedBytes: Int
+    get() = if (speechDetected) maxOf(speechStart - marginBytes, 0) else 0
+
+  /** Bytes of audio to trim after the speech */
+  val trailingTrimmedBytes: Int
+    get() = if (speechDetected) maxOf(writtenBytes - speechEnd - marginBytes, 0) else 0
+
+  /** Bytes of audio that are kept */
+  val keptBytes: Int
+    get() = writtenBytes - leadingTrimmedBytes - trailingTrimmedBytes
+
+  /** Is there any silence to trim? */
+  val trimsAudio: Boolean
+    get() = keptBytes < writtenBytes
+
+  override fun write(b: Int) {
+    write(byteArrayOf(b.toByte()), 0, 1)
+  }
+
+  override fun write(b: ByteArray, off: Int, len: Int) {
+    output.write(b, off, len)
+
+    var offset = off
+    var remaining = len
+    while (remaining > 0) {
+      val chunk = minOf(remaining, frameBytes - frameLength)
+      System.arraycopy(b, offset, frame, frameLength, chunk)
+      frameLength += chunk
+      offset += chunk
+      remaining -= chunk
+      writtenBytes += chunk
+
+      if (frameLength == frameBytes) {
+        onFrame()
+        frameLength = 0
+      }
+    }
+  }
+
+  override fun flush() {
+    output.flush()
+  }
+
+  /**
+   * Trim the silence out of [file], in which the audio written to this stream starts at [dataOffset].
+   * The kept audio is moved up to [dataOffset] and the file is truncated after it. Returns the number
+   * of bytes of audio kept. Must only be called once all the audio is written to the file.
+   */
+  fun trim(file: File, dataOffset: Long): Int {
+    if (!trimsAudio) return writtenBytes
+
+    RandomAccessFile(file, "rw").use { raf ->
+      val channel = raf.channel
+      if (channel.size() < dataOffset + writtenBytes) throw IOException("${file.name} is shorter than the audio")
+
+      // Move the kept audio to the front. Reads stay ahead of writes, so nothing is overwritten before it is read.
+      val buffer = ByteBuffer.allocate(TRIM_BUFFER_SIZE)
+      var moved = 0L
+      while (moved < keptBytes) {
+        buffer.clear()
+        buffer.limit(minOf(TRIM_BUFFER_SIZE.toLong(), keptBytes - moved).toInt())
+        while (buffer.hasRemaining()) {
+          if (channel.read(buffer, dataOffset + leadingTrimmedBytes + moved + buffer.position()) < 0) {
+            throw IOException("Unexpected end of ${file.name}")
+          }
+        }
+
+        buffer.flip()
+        while (buffer.hasRemaining()) {
+          channel.write(buffer, dataOffset + moved + buffer.position())
+        }
+        moved += buffer.limit()
+      }
+
+      channel.truncate(dataOffset + keptBytes)
+    }
+    return keptBytes
+  }
+
+  private fun onFrame() {
+    loudFrames = if (isLoud(frame)) loudFrames + 1 else 0
+    if (loudFrames < MIN_SPEECH_FRAMES) return
+
+    // Speech starts with the loud frames, and lasts at least up to the end of this frame
+    if (!speechDetected) {
+      speechStart = writtenBytes - loudFrames * frameBytes
+      speechDetected = true
+    }
+    speechEnd = writtenBytes
+  }
+
+  private fun isLoud(frame: ByteArray): Boolean {
+    var sumOfSquares = 0.0
+    var i = 0
+    while (i < frameBytes) {
+      val sample = (frame[i].toInt() and 0xff) or (frame[i + 1].toInt() shl 8)
+      sumOfSquares += sample.toDouble() * sample
+      i += 2
+    }
+    return sumOfSquares / (frameBytes / 2) > thresholdPower
+  }
+}
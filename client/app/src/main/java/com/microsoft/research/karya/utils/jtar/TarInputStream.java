@@ -19,6 +19,9 @@ package com.microsoft.research.karya.utils.jtar;
 import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 
 /**
  * @author Kamran Zafar
@@ -26,6 +29,10 @@ import java.io.InputStream;
 public class TarInputStream extends FilterInputStream {
 
   private static final int SKIP_BUFFER_SIZE = 2048;
+  /** Size of the buffer through which entry contents are copied when they cannot be transferred */
+  private static final int COPY_BUFFER_SIZE = 256 * 1024;
+  /** Channel of the uncompressed tar file being read, or null when reading any other stream */
+  private final FileChannel channel;
   private TarEntry currentEntry;
   private long currentFileSize;
   private long bytesRead;
@@ -33,6 +40,18 @@ public class TarInputStream extends FilterInputStream {
 
   public TarInputStream(InputStream in) {
     super(in);
+    channel = null;
+    currentFileSize = 0;
+    bytesRead = 0;
+  }
+
+  /**
+   * Reads an uncompressed tar file straight from its channel, from the channel's position. Entries are
+   * then transferred out by {@link #extractTo(FileChannel)}, and skipped by seeking.
+   */
+  public TarInputStream(FileChannel channel) {
+    super(Channels.newInputStream(channel));
+    this.channel = channel;
     currentFileSize = 0;
     bytesRead = 0;
   }
@@ -145,6 +164,56 @@ public class TarInputStream extends FilterInputStream {
     return currentEntry;
   }
 
+  /**
+   * Writes the rest of the current entry to the target channel, at its position, and moves the target
+   * past it. When reading from a channel, the contents are transferred between the channels;
+   * otherwise they are copied through a large buffer.
+   *
+   * @return the number of bytes written
+   * @throws IOException if the tar file ends before the entry
+   */
+  public long extractTo(FileChannel target) throws IOException {
+    if (currentEntry == null) {
+      return 0;
+    }
+
+    long remaining = currentEntry.getSize() - currentFileSize;
+    long position = target.position();
+    long written = 0;
+
+    if (channel != null) {
+      while (written < remaining) {
+        long transferred = target.transferFrom(channel, position + written, remaining - written);
+        if (transferred <= 0) {
+          break;
+        }
+        written += transferred;
+      }
+      currentFileSize += written;
+      bytesRead += written;
+    } else {
+      byte[] buffer = new byte[(int) Math.min(COPY_BUFFER_SIZE, Math.max(remaining, 1))];
+      while (written < remaining) {
+        int read = read(buffer, 0, buffer.length);
+        if (read < 0) {
+          break;
+        }
+
+        ByteBuffer contents = ByteBuffer.wrap(buffer, 0, read);
+        while (contents.hasRemaining()) {
+          target.write(contents);
+        }
+        written += read;
+      }
+    }
+
+    target.position(position + written);
+    if (written < remaining) {
+      throw new IOException("Possible tar file corruption");
+    }
+    return written;
+  }
+
   /**
    * Returns the current offset (in bytes) from the beginning of the stream.
    * This can be used to find out at which point in a tar file an entry's content begins, for instance.
@@ -219,6 +288,19 @@ public class TarInputStream extends FilterInputStream {
       return 0;
     }
 
+    if (channel != null) {
+      // Seek, within the current entry like read
+      long skipped = Math.min(n, channel.size() - channel.position());
+      if (currentEntry != null) {
+        skipped = Math.min(skipped, currentEntry.getSize() - currentFileSize);
+        currentFileSize += skipped;
+      }
+      channel.position(channel.position() + skipped);
+      bytesRead += skipped;
+
+      return skipped;
+    }
+
     long left = n;
     byte[] sBuff = new byte[SKIP_BUFFER_SIZE];
 
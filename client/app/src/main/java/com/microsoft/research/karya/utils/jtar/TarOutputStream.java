@@ -23,24 +23,34 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 
 /**
  * @author Kamran Zafar
  */
 public class TarOutputStream extends OutputStream {
+  /** Size of the buffer through which entry contents are copied when they cannot be transferred */
+  private static final int COPY_BUFFER_SIZE = 256 * 1024;
+
   private final OutputStream out;
+  /** Channel of the file being written, or null when writing to any other stream */
+  private final FileChannel channel;
   private long bytesWritten;
   private long currentFileSize;
   private TarEntry currentEntry;
 
   public TarOutputStream(OutputStream out) {
     this.out = out;
+    this.channel = null;
     bytesWritten = 0;
     currentFileSize = 0;
   }
 
   public TarOutputStream(final File fout) throws FileNotFoundException {
-    this.out = new BufferedOutputStream(new FileOutputStream(fout));
+    FileOutputStream fos = new FileOutputStream(fout);
+    this.out = new BufferedOutputStream(fos);
+    this.channel = fos.getChannel();
     bytesWritten = 0;
     currentFileSize = 0;
   }
@@ -55,7 +65,9 @@ public class TarOutputStream extends OutputStream {
     if (append && fileSize > TarConstants.EOF_BLOCK) {
       raf.seek(fileSize - TarConstants.EOF_BLOCK);
     }
-    out = new BufferedOutputStream(new FileOutputStream(raf.getFD()));
+    FileOutputStream fos = new FileOutputStream(raf.getFD());
+    out = new BufferedOutputStream(fos);
+    channel = fos.getChannel();
   }
 
   /**
@@ -125,6 +137,60 @@ public class TarOutputStream extends OutputStream {
     currentEntry = entry;
   }
 
+  /**
+   * Writes the contents of the current entry from the source channel, starting at its position, and
+   * moves the source past them. When writing to a file, the contents are transferred between the
+   * channels; otherwise they are copied through a large buffer.
+   *
+   * @throws IOException if the source ends before the entry is complete
+   */
+  public void putFile(FileChannel source) throws IOException {
+    if (currentEntry == null) {
+      throw new IOException("No entry to write the file to");
+    }
+
+    long remaining = currentEntry.getSize() - currentFileSize;
+    if (channel != null) {
+      // Buffered bytes go first
+      out.flush();
+
+      long position = source.position();
+      while (remaining > 0) {
+        long transferred = source.transferTo(position, remaining, channel);
+        if (transferred <= 0) {
+          break;
+        }
+
+        position += transferred;
+        remaining -= transferred;
+        bytesWritten += transferred;
+        currentFileSize += transferred;
+      }
+      source.position(position);
+    } else {
+      ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(COPY_BUFFER_SIZE, Math.max(remaining, 1)));
+      while (remaining > 0) {
+        buffer.clear();
+        if (remaining < buffer.capacity()) {
+          buffer.limit((int) remaining);
+        }
+
+        int read = source.read(buffer);
+        if (read < 0) {
+          break;
+        }
+
+        write(buffer.array(), 0, read);
+        remaining -= read;
+      }
+    }
+
+    if (remaining > 0) {
+      throw new IOException("The file of the current entry[" + currentEntry.getName() + "] is " + remaining
+        + " bytes shorter than its size[" + currentEntry.getSize() + "].");
+    }
+  }
+
   /**
    * Closes the current tar entry
    *
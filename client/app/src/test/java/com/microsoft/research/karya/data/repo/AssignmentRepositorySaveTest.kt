@@ -0,0 +1,112 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.research.karya.data.repo
+
+import com.google.gson.Gson
+import com.google.gson.JsonObject
+import com.microsoft.research.karya.data.local.daos.MicroTaskAssignmentDao
+import com.microsoft.research.karya.data.local.daos.MicroTaskDao
+import com.microsoft.research.karya.data.model.karya.MicroTaskAssignmentRecord
+import com.microsoft.research.karya.data.model.karya.enums.MicrotaskAssignmentStatus
+import com.microsoft.research.karya.data.service.MicroTaskAssignmentAPI
+import java.lang.reflect.Proxy
+import kotlinx.coroutines.flow.toList
+import kotlinx.coroutines.runBlocking
+import okhttp3.mockwebserver.MockResponse
+import okhttp3.mockwebserver.MockWebServer
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Before
+import org.junit.Test
+import retrofit2.Retrofit
+import retrofit2.converter.gson.GsonConverterFactory
+
+/** Task of each microtask in the local DB */
+private val LOCAL_TASK_IDS = mapOf("local-microtask" to "local-task")
+
+/** Stand-in for a dependency, whose calls are answered by [answer] with the method name and arguments */
+private inline fun <reified T> fake(crossinline answer: (method: String, args: List<Any?>) -> Any?): T =
+  Proxy.newProxyInstance(T::class.java.classLoader, arrayOf(T::class.java)) { _, method, args ->
+    answer(method.name, args.orEmpty().toList())
+  } as T
+
+/** Stand-in for a dependency that the tested code must not use */
+private inline fun <reified T> unused(): T = fake { method, _ ->
+  throw UnsupportedOperationException("${T::class.java.simpleName}.$method")
+}
+
+private fun assignment(id: String, microtaskId: String, taskId: String) =
+  MicroTaskAssignmentRecord(
+    id,
+    id,
+    "box",
+    microtaskId,
+    taskId,
+    "worker",
+    null,
+    MicrotaskAssignmentStatus.VERIFIED,
+    null,
+    JsonObject(),
+    null,
+    JsonObject(),
+    1.0f,
+    null,
+    JsonObject(),
+    "",
+    ""
+  )
+
+class AssignmentRepositorySaveTest {
+
+  private val server = MockWebServer()
+  private val savedAssignments = mutableListOf<MicroTaskAssignmentRecord>()
+
+  private lateinit var repository: AssignmentRepository
+
+  @Before
+  fun setUp() {
+    server.start()
+    val api =
+      Retrofit.Builder()
+        .baseUrl(server.url("/"))
+        .addConverterFactory(GsonConverterFactory.create())
+        .build()
+        .create(MicroTaskAssignmentAPI::class.java)
+
+    val assignmentDao =
+      fake<MicroTaskAssignmentDao> { method, args ->
+        check(method == "upsert") { "MicroTaskAssignmentDao.$method" }
+        @Suppress("UNCHECKED_CAST") savedAssignments.addAll(args[0] as List<MicroTaskAssignmentRecord>)
+        Unit
+      }
+    val microTaskDao =
+      fake<MicroTaskDao> { method, args ->
+        check(method == "getTaskId") { "MicroTaskDao.$method" }
+        LOCAL_TASK_IDS[args[0]]
+      }
+    repository = AssignmentRepository(api, assignmentDao, unused(), microTaskDao, unused(), unused(), unused())
+  }
+
+  @After
+  fun tearDown() {
+    server.shutdown()
+  }
+
+  @Test
+  fun assignmentsOfUnknownMicrotasksAreLeftOut() {
+    val assignments =
+      listOf(
+        assignment("with-task", "other-microtask", "task"),
+        assignment("local", "local-microtask", ""),
+        assignment("unknown", "unknown-microtask", ""),
+      )
+    server.enqueue(MockResponse().setBody(Gson().toJson(assignments)))
+
+    val received = runBlocking { repository.getVerifiedAssignments("token", "").toList() }
+
+    // The response is still handed on whole
+    assertEquals(listOf("with-task", "local", "unknown"), received.single().map { it.id })
+    assertEquals(listOf("with-task" to "task", "local" to "local-task"), savedAssignments.map { it.id to it.task_id })
+  }
+}
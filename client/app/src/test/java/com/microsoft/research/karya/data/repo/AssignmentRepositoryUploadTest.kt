@@ -0,0 +1,303 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.research.karya.data.repo
+
+import com.google.gson.Gson
+import com.microsoft.research.karya.data.exceptions.UploadRejectedException
+import com.microsoft.research.karya.data.local.daos.UploadSessionDao
+import com.microsoft.research.karya.data.model.karya.ChecksumAlgorithm
+import com.microsoft.research.karya.data.model.karya.KaryaFileRecord
+import com.microsoft.research.karya.data.model.karya.UploadSessionRecord
+import com.microsoft.research.karya.data.model.karya.enums.FileCreator
+import com.microsoft.research.karya.data.remote.request.TarBallRequestBody
+import com.microsoft.research.karya.data.remote.request.UploadFileRequest
+import com.microsoft.research.karya.data.remote.response.UploadSessionResponse
+import com.microsoft.research.karya.data.service.MicroTaskAssignmentAPI
+import java.io.ByteArrayOutputStream
+import java.io.IOException
+import java.lang.reflect.Proxy
+import java.math.BigInteger
+import java.security.MessageDigest
+import kotlin.random.Random
+import kotlinx.coroutines.flow.toList
+import kotlinx.coroutines.runBlocking
+import okhttp3.OkHttpClient
+import okhttp3.mockwebserver.Dispatcher
+import okhttp3.mockwebserver.MockResponse
+import okhttp3.mockwebserver.MockWebServer
+import okhttp3.mockwebserver.RecordedRequest
+import okhttp3.mockwebserver.SocketPolicy
+import okio.Buffer
+import org.junit.After
+import org.junit.Assert.assertArrayEquals
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotNull
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertThrows
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import retrofit2.Retrofit
+import retrofit2.converter.gson.GsonConverterFactory
+
+private const val ASSIGNMENT_ID = "assignment"
+private const val ID_TOKEN = "token"
+private const val CHUNK_SIZE = 16 * 1024
+
+/** Stand-in for a dependency that the tested code must not use */
+private inline fun <reified T> unused(): T =
+  Proxy.newProxyInstance(T::class.java.classLoader, arrayOf(T::class.java)) { _, method, _ ->
+    throw UnsupportedOperationException("${T::class.java.simpleName}.${method.name}")
+  } as T
+
+private class FakeUploadSessionDao : UploadSessionDao {
+  val sessions = mutableMapOf<String, UploadSessionRecord>()
+
+  override suspend fun getById(assignmentId: String) = sessions[assignmentId]
+
+  override suspend fun deleteById(assignmentId: String) {
+    sessions.remove(assignmentId)
+  }
+
+  override suspend fun insert(record: UploadSessionRecord) {
+    sessions[record.assignment_id] = record
+  }
+
+  override suspend fun insertForUpsert(record: UploadSessionRecord) {
+    sessions[record.assignment_id] = record
+  }
+
+  override suspend fun updateForUpsert(record: UploadSessionRecord) {
+    sessions[record.assignment_id] = record
+  }
+
+  override suspend fun insertForUpsert(records: List<UploadSessionRecord>) {
+    records.forEach { insertForUpsert(it) }
+  }
+
+  override suspend fun updateForUpsert(records: List<UploadSessionRecord>) {
+    records.forEach { updateForUpsert(it) }
+  }
+}
+
+/**
+ * Stand-in for the resumable output file upload routes of the box server. A session keeps the bytes
+ * appended to it, like the partial file of a session on the box server.
+ */
+private class FakeBoxServer : Dispatcher() {
+  private val gson = Gson()
+  private val sessions = mutableMapOf<String, ByteArrayOutputStream>()
+
+  /** Offsets of all the chunks sent, in order */
+  val chunkOffsets = mutableListOf<Long>()
+
+  /** Indices (among all the chunks sent) of the chunks whose connection drops half way */
+  val droppedChunks = mutableSetOf<Int>()
+
+  /** Status with which every chunk is refused, if any */
+  var chunkStatus: Int? = null
+
+  /** Status with which completion fails, if any */
+  var completeStatus: Int? = null
+
+  /** Contents of the completed file */
+  var completedFile: ByteArray? = null
+
+  /** Create a session that already holds [content], and return its ID */
+  @Synchronized
+  fun addSession(content: ByteArray = ByteArray(0)): String {
+    val sessionId = "session-${sessions.size}"
+    sessions[sessionId] = ByteArrayOutputStream().apply { write(content) }
+    return sessionId
+  }
+
+  @Synchronized
+  override fun dispatch(request: RecordedRequest): MockResponse {
+    // assignment/{id}/output_file/upload[/{session_id}[/complete]]
+    val url = checkNotNull(request.requestUrl)
+    val segments = url.pathSegments
+    if (segments.size == 4) return state(addSession())
+
+    val sessionId = segments[4]
+    val part = sessions[sessionId] ?: return MockResponse().setResponseCode(404)
+    return when {
+      segments.size == 6 -> complete(sessionId, part, request)
+      request.method == "PUT" -> append(sessionId, part, url.queryParameter("offset")!!.toLong(), request)
+      else -> state(sessionId)
+    }
+  }
+
+  private fun state(sessionId: String): MockResponse {
+    val offset = sessions.getValue(sessionId).size().toLong()
+    return MockResponse().setBody(gson.toJson(UploadSessionResponse(sessionId, offset, CHUNK_SIZE)))
+  }
+
+  private fun append(
+    sessionId: String,
+    part: ByteArrayOutputStream,
+    offset: Long,
+    request: RecordedRequest
+  ): MockResponse {
+    chunkOffsets.add(offset)
+    chunkStatus?.let {
+      return MockResponse().setResponseCode(it)
+    }
+    if (offset != part.size().toLong()) return state(sessionId).setResponseCode(409)
+
+    val chunk = request.body.readByteArray()
+    if (chunkOffsets.size - 1 in droppedChunks) {
+      // Only the first half arrives before the connection drops
+      part.write(chunk, 0, chunk.size / 2)
+      return MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AFTER_REQUEST)
+    }
+
+    part.write(chunk)
+    return state(sessionId)
+  }
+
+  private fun complete(sessionId: String, part: ByteArrayOutputStream, request: RecordedRequest): MockResponse {
+    completeStatus?.let {
+      return MockResponse().setResponseCode(it)
+    }
+
+    val file = gson.fromJson(request.body.readUtf8(), UploadFileRequest::class.java)
+    val md5 = MessageDigest.getInstance("MD5").digest(part.toByteArray())
+    sessions.remove(sessionId)
+    if (BigInteger(1, md5).toString(16).padStart(32, '0') != file.checksum) {
+      return MockResponse().setResponseCode(400)
+    }
+
+    completedFile = part.toByteArray()
+    val record =
+      KaryaFileRecord(
+        "file",
+        "",
+        null,
+        file.container_name,
+        file.name,
+        null,
+        FileCreator.WORKER,
+        "worker",
+        ChecksumAlgorithm.MD5,
+        file.checksum,
+        true,
+        false,
+        "",
+        ""
+      )
+    return MockResponse().setBody(gson.toJson(record))
+  }
+}
+
+class AssignmentRepositoryUploadTest {
+
+  @get:Rule val folder = TemporaryFolder()
+
+  private val server = MockWebServer()
+  private val boxServer = FakeBoxServer()
+  private val uploadSessionDao = FakeUploadSessionDao()
+
+  private lateinit var repository: AssignmentRepository
+  private lateinit var tarBall: TarBallRequestBody
+
+  /** The tar ball as the server should receive it */
+  private lateinit var tarBallBytes: ByteArray
+
+  @Before
+  fun setUp() {
+    server.dispatcher = boxServer
+    server.start()
+
+    // A dropped connection must reach the repository, instead of being retried by OkHttp
+    val client = OkHttpClient.Builder().retryOnConnectionFailure(false).build()
+    val api =
+      Retrofit.Builder()
+        .client(client)
+        .baseUrl(server.url("/"))
+        .addConverterFactory(GsonConverterFactory.create())
+        .build()
+        .create(MicroTaskAssignmentAPI::class.java)
+    repository = AssignmentRepository(api, unused(), unused(), unused(), unused(), uploadSessionDao, unused())
+
+    // Noise does not compress, so the tar ball spans several chunks
+    val recording = folder.newFile("recording.wav").apply { writeBytes(Random(1).nextBytes(5 * CHUNK_SIZE)) }
+    tarBall = TarBallRequestBody(listOf(recording.path), listOf(recording.name))
+    tarBallBytes = Buffer().also { tarBall.writeTo(it) }.readByteArray()
+  }
+
+  @After
+  fun tearDown() {
+    server.shutdown()
+  }
+
+  private fun upload() = runBlocking {
+    repository
+      .submitAssignmentOutputFileResumable(ID_TOKEN, ASSIGNMENT_ID, tarBall, "microtask-assignment-output", "out.tgz")
+      .toList()
+  }
+
+  @Test
+  fun uploadsInChunks() {
+    val files = upload()
+
+    assertEquals((tarBallBytes.indices step CHUNK_SIZE).map { it.toLong() }, boxServer.chunkOffsets)
+    assertArrayEquals(tarBallBytes, boxServer.completedFile)
+    assertEquals(tarBall.md5sum, files.single().checksum)
+    assertNull(uploadSessionDao.sessions[ASSIGNMENT_ID])
+  }
+
+  @Test
+  fun resumesFromTheOffsetAcknowledgedByTheServer() {
+    // An earlier sync sent two chunks, but stopped before it stored the second offset
+    val sessionId = boxServer.addSession(tarBallBytes.copyOf(2 * CHUNK_SIZE))
+    uploadSessionDao.sessions[ASSIGNMENT_ID] =
+      UploadSessionRecord(ASSIGNMENT_ID, sessionId, CHUNK_SIZE, CHUNK_SIZE.toLong(), 1, "")
+
+    upload()
+
+    assertEquals(2L * CHUNK_SIZE, boxServer.chunkOffsets.first())
+    assertArrayEquals(tarBallBytes, boxServer.completedFile)
+    assertNull(uploadSessionDao.sessions[ASSIGNMENT_ID])
+  }
+
+  @Test
+  fun retriesADroppedChunkFromTheServerOffset() {
+    boxServer.droppedChunks.add(1)
+
+    upload()
+
+    // Half of the second chunk arrived, so the retry continues from there
+    val expectedOffsets = listOf(0L, CHUNK_SIZE.toLong(), CHUNK_SIZE + CHUNK_SIZE / 2L)
+    assertEquals(expectedOffsets, boxServer.chunkOffsets.take(3))
+    assertArrayEquals(tarBallBytes, boxServer.completedFile)
+  }
+
+  @Test
+  fun keepsTheSessionWhenChunksKeepFailing() {
+    boxServer.chunkStatus = 503
+
+    assertThrows(IOException::class.java) { upload() }
+
+    // Each attempt resends the first chunk. The session is kept for the next sync.
+    assertEquals(listOf(0L, 0L, 0L), boxServer.chunkOffsets)
+    assertNotNull(uploadSessionDao.sessions[ASSIGNMENT_ID]?.session_id)
+  }
+
+  @Test
+  fun rejectsTheUploadOnAPermanentChunkError() {
+    boxServer.chunkStatus = 413
+
+    assertThrows(UploadRejectedException::class.java) { upload() }
+    assertEquals(listOf(0L), boxServer.chunkOffsets)
+  }
+
+  @Test
+  fun rejectsTheUploadWhenCompletionFails() {
+    boxServer.completeStatus = 400
+
+    assertThrows(UploadRejectedException::class.java) { upload() }
+    assertNull(uploadSessionDao.sessions[ASSIGNMENT_ID])
+  }
+}
@@ -0,0 +1,135 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.research.karya.utils
+
+import java.io.ByteArrayOutputStream
+import java.io.File
+import kotlin.math.PI
+import kotlin.math.roundToInt
+import kotlin.math.sin
+import org.junit.Assert.assertArrayEquals
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+
+private const val SAMPLE_RATE = 16000
+private const val MARGIN_MS = 300
+private const val THRESHOLD_DBFS = -45.0
+private const val HEADER_SIZE = 44
+
+/** Bytes of 16-bit mono PCM in [ms] of audio */
+private fun bytes(ms: Int) = SAMPLE_RATE * ms / 1000 * 2
+
+class SilenceTrimmerTest {
+
+  @get:Rule val folder = TemporaryFolder()
+
+  /** [ms] of a 440 Hz tone with peak [amplitude] */
+  private fun tone(ms: Int, amplitude: Int = 8000): ByteArray {
+    val pcm = ByteArray(bytes(ms))
+    for (i in 0 until pcm.size / 2) {
+      val sample = (amplitude * sin(2 * PI * 440 * i / SAMPLE_RATE)).roundToInt()
+      pcm[2 * i] = sample.toByte()
+      pcm[2 * i + 1] = (sample shr 8).toByte()
+    }
+    return pcm
+  }
+
+  private fun silence(ms: Int) = ByteArray(bytes(ms))
+
+  /**
+   * Write [audio] through a trimmer to a wav-like file, in chunks that are not aligned to frames, and
+   * trim the file. Returns the trimmer, the untrimmed audio and the trimmed file.
+   */
+  private fun record(vararg audio: ByteArray): Triple<SilenceTrimmer, ByteArray, File> {
+    val pcm = audio.fold(ByteArray(0)) { all, part -> all + part }
+    val header = ByteArray(HEADER_SIZE) { it.toByte() }
+    val output = ByteArrayOutputStream().apply { write(header) }
+
+    val trimmer = SilenceTrimmer(SAMPLE_RATE, MARGIN_MS, THRESHOLD_DBFS, output)
+    for (offset in pcm.indices step 333) {
+      trimmer.write(pcm, offset, minOf(333, pcm.size - offset))
+    }
+
+    // Nothing is held back while recording
+    assertArrayEquals(header + pcm, output.toByteArray())
+    assertEquals(pcm.size, trimmer.writtenBytes)
+
+    val file = folder.newFile()
+    file.writeBytes(output.toByteArray())
+    assertEquals(trimmer.keptBytes, trimmer.trim(file, HEADER_SIZE.toLong()))
+    assertArrayEquals(header, file.readBytes().copyOfRange(0, HEADER_SIZE))
+
+    return Triple(trimmer, pcm, file)
+  }
+
+  private fun assertUntrimmed(trimmer: SilenceTrimmer, pcm: ByteArray, file: File) {
+    assertFalse(trimmer.speechDetected)
+    assertFalse(trimmer.trimsAudio)
+    assertEquals(0, trimmer.leadingTrimmedBytes)
+    assertEquals(0, trimmer.trailingTrimmedBytes)
+    assertArrayEquals(pcm, file.readBytes().copyOfRange(HEADER_SIZE, HEADER_SIZE + pcm.size))
+    assertEquals((HEADER_SIZE + pcm.size).toLong(), file.length())
+  }
+
+  @Test
+  fun longSilenceEndingInPartialFrameIsKept() {
+    // 5 s and one frame of silence, and then part of a frame, as a stop that is not frame aligned leaves it
+    val (trimmer, pcm, file) = record(silence(5000), silence(20), ByteArray(100))
+    assertUntrimmed(trimmer, pcm, file)
+  }
+
+  @Test
+  fun quietTakeWithoutSpeechIsKept() {
+    // About -53 dBFS, below the threshold
+    val (trimmer, pcm, file) = record(tone(20000, amplitude = 100))
+    assertUntrimmed(trimmer, pcm, file)
+  }
+
+  @Test
+  fun shortBurstIsNotSpeech() {
+    val (trimmer, pcm, file) = record(silence(1000), tone(40), silence(1000))
+    assertUntrimmed(trimmer, pcm, file)
+  }
+
+  @Test
+  fun silenceBeyondTheMarginIsTrimmed() {
+    val speech = tone(1000)
+    // The trailing silence is longer than 5 s
+    val (trimmer, pcm, file) = record(silence(2000), speech, silence(7000), ByteArray(100))
+
+    assertTrue(trimmer.speechDetected)
+    assertTrue(trimmer.trimsAudio)
+    assertEquals(bytes(2000) - bytes(MARGIN_MS), trimmer.leadingTrimmedBytes)
+    assertEquals(bytes(7000) + 100 - bytes(MARGIN_MS), trimmer.trailingTrimmedBytes)
+    assertEquals(speech.size + 2 * bytes(MARGIN_MS), trimmer.keptBytes)
+
+    val kept = pcm.copyOfRange(trimmer.leadingTrimmedBytes, trimmer.leadingTrimmedBytes + trimmer.keptBytes)
+    assertArrayEquals(kept, file.readBytes().copyOfRange(HEADER_SIZE, file.length().toInt()))
+  }
+
+  @Test
+  fun pausesWithinSpeechAreKept() {
+    val (trimmer, pcm, file) = record(silence(1000), tone(500), silence(6000), tone(500), silence(1000))
+
+    assertEquals(bytes(1000) - bytes(MARGIN_MS), trimmer.leadingTrimmedBytes)
+    assertEquals(bytes(1000) - bytes(MARGIN_MS), trimmer.trailingTrimmedBytes)
+    assertEquals(bytes(7000) + 2 * bytes(MARGIN_MS), trimmer.keptBytes)
+
+    val kept = pcm.copyOfRange(trimmer.leadingTrimmedBytes, trimmer.leadingTrimmedBytes + trimmer.keptBytes)
+    assertArrayEquals(kept, file.readBytes().copyOfRange(HEADER_SIZE, file.length().toInt()))
+  }
+
+  @Test
+  fun marginIsClippedAtTheEdges() {
+    val (trimmer, pcm, file) = record(silence(100), tone(1000), silence(100))
+
+    assertTrue(trimmer.speechDetected)
+    assertFalse(trimmer.trimsAudio)
+    assertArrayEquals(pcm, file.readBytes().copyOfRange(HEADER_SIZE, file.length().toInt()))
+  }
+}
@@ -0,0 +1,113 @@
+// Copyright (c) Microsoft Corporation.
+// Licensed under the MIT license.
+
+package com.microsoft.research.karya.utils
+
+import com.microsoft.research.karya.utils.jtar.TarEntry
+import com.microsoft.research.karya.utils.jtar.TarOutputStream
+import java.io.File
+import java.io.FileInputStream
+import kotlin.random.Random
+import org.junit.Assert.assertArrayEquals
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+
+private const val FILES = 50
+private const val FILE_SIZE = 1024 * 1024
+private const val RUNS = 3
+private const val TEXT = "the quick brown fox "
+
+/**
+ * Times writing and extracting a 50 MB tar ball of 50 files, gzipped (as output files are uploaded) and uncompressed
+ * (as seekable input files are downloaded). Half the files are random and half are compressible text. The best
+ * throughput of [RUNS] runs is printed, and every extracted file is checked against its source.
+ */
+class TarBallBenchmark {
+
+  @get:Rule val folder = TemporaryFolder()
+
+  private lateinit var sources: List<File>
+
+  @Before
+  fun setUp() {
+    val random = Random(1)
+    val directory = folder.newFolder("sources")
+    sources =
+      List(FILES) { i ->
+        val size = FILE_SIZE - 1000 + random.nextInt(2000)
+        val content =
+          if (i % 2 == 0) {
+            random.nextBytes(size)
+          } else {
+            // Text with a typo every 16 letters or so
+            ByteArray(size) { k -> (TEXT[k % TEXT.length].toInt() + if (random.nextInt(16) == 0) 1 else 0).toByte() }
+          }
+        File(directory, "file-$i").apply { writeBytes(content) }
+      }
+  }
+
+  @Test
+  fun gzippedTarBall() {
+    val tarBall = File(folder.root, "sources.tgz")
+    val directory = folder.newFolder("gzipped")
+
+    val paths = sources.map { it.path }
+    val names = sources.map { it.name }
+    val write = best { tarBall.outputStream().use { output -> FileUtils.writeTarBall(output, paths, names) } }
+    val extract = best { assertTrue(FileUtils.extractGZippedTarBallIntoDirectory(tarBall.path, directory.path)) }
+
+    report("gzipped", write, extract)
+    checkExtracted(directory)
+  }
+
+  @Test
+  fun uncompressedTarBall() {
+    val tarBall = File(folder.root, "sources.tar")
+    val directory = folder.newFolder("uncompressed")
+
+    val write = best {
+      TarOutputStream(tarBall).use { tarStream ->
+        for (source in sources) {
+          tarStream.putNextEntry(TarEntry(source, source.name))
+          FileInputStream(source).use { tarStream.putFile(it.channel) }
+        }
+      }
+    }
+    val extract = best { assertTrue(FileUtils.extractTarBallIntoDirectory(tarBall.path, directory.path)) }
+
+    report("uncompressed", write, extract)
+    checkExtracted(directory)
+  }
+
+  /** Shortest time in ns of [RUNS] runs of [action], after a warm up run */
+  private fun best(action: () -> Unit): Long {
+    action()
+    return List(RUNS) {
+      val start = System.nanoTime()
+      action()
+      System.nanoTime() - start
+    }
+      .minOrNull()!!
+  }
+
+  private fun report(kind: String, writeNanos: Long, extractNanos: Long) {
+    val megabytes = sources.sumOf { it.length() } / (1024.0 * 1024.0)
+    println(
+      "%s tar ball of %.0f MB: write %.0f MB/s, extract %.0f MB/s".format(
+        kind,
+        megabytes,
+        megabytes * 1e9 / writeNanos,
+        megabytes * 1e9 / extractNanos
+      )
+    )
+  }
+
+  private fun checkExtracted(directory: File) {
+    for (source in sources) {
+      assertArrayEquals(source.name, source.readBytes(), File(directory, source.name).readBytes())
+    }
+  }
+}
@@ -70,6 +70,7 @@ object Dependencies {
       const val roomRuntime = "androidx.room:room-runtime:$version"
       const val roomCompiler = "androidx.room:room-compiler:$version"
       const val roomKtx = "androidx.room:room-ktx:$version"
+      const val roomTesting = "androidx.room:room-testing:$version"
     }
 
     object Navigation {
@@ -108,4 +109,12 @@ object Dependencies {
       const val gsonConverter = "com.squareup.retrofit2:converter-gson:$version"
     }
   }
+
+  object Test {
+
+    const val junit = "junit:junit:4.13.2"
+    const val mockWebServer = "com.squareup.okhttp3:mockwebserver:5.0.0-alpha.2"
+    const val androidxJunit = "androidx.test.ext:junit:1.1.2"
+    const val androidxRunner = "androidx.test:runner:1.3.0"
+  }
 }
@@ -0,0 +1,83 @@
+import groovy.json.JsonSlurper
+
+// Transliteration validator. It is plain Java, so that it can be benchmarked on the JVM without a device.
+plugins {
+  `java-library`
+  id("me.champeau.jmh") version "0.6.5"
+}
+
+java {
+  sourceCompatibility = JavaVersion.VERSION_1_8
+  targetCompatibility = JavaVersion.VERSION_1_8
+}
+
+// The sources hold the letters of the validated scripts
+tasks.withType<JavaCompile>().configureEach { options.encoding = "UTF-8" }
+
+dependencies {
+  testImplementation(Dependencies.Test.junit)
+}
+
+val jmhResults = layout.buildDirectory.file("results/jmh/results.json")
+
+// Throughput depends on the machine, so the baseline is recorded (with jmhBaseline) on the machine that runs jmhCheck
+val jmhBaseline = file("jmh-baseline.json")
+
+jmh {
+  resultFormat.set("JSON")
+  resultsFile.set(jmhResults)
+}
+
+/** Score of each benchmark and parameter combination in a JMH JSON result file */
+fun readScores(file: File): Map<String, Double> {
+  @Suppress("UNCHECKED_CAST") val results = JsonSlurper().parse(file) as List<Map<String, Any?>>
+  return results.associate { result ->
+    @Suppress("UNCHECKED_CAST") val params = (result["params"] as Map<String, String>?).orEmpty().toSortedMap()
+    @Suppress("UNCHECKED_CAST") val metric = result["primaryMetric"] as Map<String, Any?>
+    "${result["benchmark"]}$params" to (metric["score"] as Number).toDouble()
+  }
+}
+
+tasks.register("jmhBaseline") {
+  group = "benchmark"
+  description = "Runs the benchmarks and records their results as the baseline of jmhCheck."
+  dependsOn("jmh")
+  doLast { jmhResults.get().asFile.copyTo(jmhBaseline, overwrite = true) }
+}
+
+tasks.register("jmhCheck") {
+  group = "verification"
+  description =
+    "Runs the benchmarks and fails if any throughput dropped more than jmhTolerance (default 0.2) below the baseline, " +
+      "or if any benchmark is missing from the baseline."
+  dependsOn("jmh")
+  doLast {
+    if (!jmhBaseline.exists()) {
+      throw GradleException("No benchmark baseline at $jmhBaseline. Record one on this machine with jmhBaseline.")
+    }
+    val tolerance = (findProperty("jmhTolerance") as String?)?.toDouble() ?: 0.2
+    val baseline = readScores(jmhBaseline)
+    val results = readScores(jmhResults.get().asFile)
+
+    // A benchmark without a baseline would otherwise never be checked
+    val unmatched = results.keys - baseline.keys
+    if (unmatched.isNotEmpty()) {
+      throw GradleException(
+        "No baseline for these benchmarks. Record a new baseline with jmhBaseline:\n" + unmatched.joinToString("\n")
+      )
+    }
+
+    val regressions =
+      results.mapNotNull { (benchmark, score) ->
+        val baselineScore = baseline.getValue(benchmark)
+        if (score >= baselineScore * (1 - tolerance)) return@mapNotNull null
+        "$benchmark: ${"%.0f".format(score)} ops/s, baseline ${"%.0f".format(baselineScore)} ops/s"
+      }
+    if (regressions.isNotEmpty()) {
+      throw GradleException(
+        "Throughput dropped more than ${"%.0f".format(tolerance * 100)}% below the baseline:\n" +
+          regressions.joinToString("\n")
+      )
+    }
+  }
+}
@@ -8,7 +8,12 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-public class Validator {
+/**
+ * The validator as it was before its lookup tables were precomputed, benchmarked next to
+ * {@link Validator} by {@link ValidatorBenchmark}. It is the original code: every call rebuilds
+ * the tables and appends to the english lists, so its throughput also falls the longer it runs.
+ */
+class BaselineValidator {
   static List<String> eng_vowels = new ArrayList<>();
   static List<String> eng_stop_list = new ArrayList<>();
   static Map<LanguageType, Integer> lang_base = new HashMap<>();
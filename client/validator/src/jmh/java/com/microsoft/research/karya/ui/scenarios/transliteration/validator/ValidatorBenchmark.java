@@ -0,0 +1,85 @@
+package com.microsoft.research.karya.ui.scenarios.transliteration.validator;
+
+import com.microsoft.research.karya.data.model.karya.enums.LanguageType;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@link Validator#isValid} per language, on words of increasing length, and of the
+ * validator it replaced ({@link BaselineValidator}) on the same words
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidatorBenchmark {
+
+  /**
+   * Indic and english words of each language: a short word, a typical one and a long word with many
+   * consonants of many mappings. BN validates with the Oriya consonants, so its words are rejected.
+   */
+  private static final String[][] WORDS = {
+    {"HI", "short", "राम", "ram"},
+    {"HI", "typical", "कस्तूरबा", "kasturba"},
+    {"HI", "pathological", "सत्यनारायणस्वामी", "satyanarayanaswami"},
+    {"TA", "short", "ராம்", "ram"},
+    {"TA", "typical", "சென்னை", "chennai"},
+    {"TA", "pathological", "திருவனந்தபுரம்", "thiruvananthapuram"},
+    {"ML", "short", "രാമൻ", "raman"},
+    {"ML", "typical", "കേരളം", "keralam"},
+    {"ML", "pathological", "തിരുവനന്തപുരം", "thiruvananthapuram"},
+    {"BN", "short", "রাম", "ram"},
+    {"BN", "typical", "কলকাতা", "kolkata"},
+    {"BN", "pathological", "রবীন্দ্রনাথঠাকুর", "rabindranaththakur"},
+    {"TE", "short", "రామ", "rama"},
+    {"TE", "typical", "హైదరాబాద్", "hyderabad"},
+    {"TE", "pathological", "శ్రీకృష్ణదేవరాయలు", "srikrishnadevarayalu"},
+  };
+
+  @Param({"HI", "TA", "ML", "BN", "TE"})
+  public String language;
+
+  @Param({"short", "typical", "pathological"})
+  public String input;
+
+  private LanguageType languageType;
+  private String indicWord;
+  private String engWord;
+
+  @Setup
+  public void setUp() {
+    languageType = LanguageType.valueOf(language);
+    for (String[] words : WORDS) {
+      if (words[0].equals(language) && words[1].equals(input)) {
+        indicWord = words[2];
+        engWord = words[3];
+        return;
+      }
+    }
+    throw new IllegalArgumentException("No " + input + " word for " + language);
+  }
+
+  @Benchmark
+  public boolean isValid() {
+    return Validator.isValid(languageType, indicWord, engWord);
+  }
+
+  @Benchmark
+  public boolean baselineIsValid() {
+    return BaselineValidator.isValid(languageType, indicWord, engWord);
+  }
+}
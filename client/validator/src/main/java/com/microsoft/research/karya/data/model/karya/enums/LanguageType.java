@@ -1,6 +1,6 @@
-package com.microsoft.research.karya.data.model.karya.enums
+package com.microsoft.research.karya.data.model.karya.enums;
 
-enum class LanguageType {
+public enum LanguageType {
   AS,
   BN,
   BRX,
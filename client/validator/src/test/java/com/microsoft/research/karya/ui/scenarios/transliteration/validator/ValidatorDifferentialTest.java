@@ -0,0 +1,167 @@
+package com.microsoft.research.karya.ui.scenarios.transliteration.validator;
+
+import static org.junit.Assert.assertTrue;
+
+import com.microsoft.research.karya.data.model.karya.enums.LanguageType;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.TreeMap;
+
+/**
+ * Checks that {@link Validator} gives the same result as {@link ReferenceValidator}, the original
+ * implementation, on real words and on a seeded corpus of generated word pairs.
+ */
+public class ValidatorDifferentialTest {
+  private static final long SEED = 7;
+
+  /** Generated word pairs per language */
+  private static final int PAIRS_PER_LANGUAGE = 3000;
+
+  private static final String ENG_VOWELS = "aeiouhy";
+
+  /**
+   * Offsets from the language base of vowel signs, the virama and other characters that the
+   * validator treats specially
+   */
+  private static final int[] SPECIAL_OFFSETS = {
+    0, 1, 2, 25, 30, 45, 47, 49, 56, 60, 61, 62, 63, 64, 65, 66, 67, 68, 71, 72, 75, 76, 77, 95, 97,
+    98, 99, 113
+  };
+
+  private static final String[][] WORDS = {
+    {"HI", "राम", "ram"},
+    {"HI", "कस्तूरबा", "kasturba"},
+    {"HI", "सत्यनारायणस्वामी", "satyanarayanaswami"},
+    {"HI", "दिल्ली", "delhi"},
+    {"HI", "राम", "shyam"},
+    {"MR", "पुणे", "pune"},
+    {"GU", "અમદાવાદ", "amdavad"},
+    {"PA", "ਅੰਮ੍ਰਿਤਸਰ", "amritsar"},
+    {"TA", "ராம்", "ram"},
+    {"TA", "சென்னை", "chennai"},
+    {"TA", "திருவனந்தபுரம்", "thiruvananthapuram"},
+    {"ML", "രാമൻ", "raman"},
+    {"ML", "കേരളം", "keralam"},
+    {"ML", "തിരുവനന്തപുരം", "thiruvananthapuram"},
+    {"KN", "ಬೆಂಗಳೂರು", "bengaluru"},
+    {"BN", "রাম", "ram"},
+    {"BN", "কলকাতা", "kolkata"},
+    {"BN", "রবীন্দ্রনাথঠাকুর", "rabindranaththakur"},
+    {"AS", "গুৱাহাটী", "guwahati"},
+    {"TE", "రామ", "rama"},
+    {"TE", "హైదరాబాద్", "hyderabad"},
+    {"TE", "శ్రీకృష్ణదేవరాయలు", "srikrishnadevarayalu"},
+    {"OR", "ଓଡ଼ିଶା", "odisha"},
+    {"UR", "لاہور", "lahore"},
+  };
+
+  @BeforeClass
+  public static void initReference() {
+    ReferenceValidator.init();
+  }
+
+  @Test
+  public void realWordsMatchReference() {
+    List<String> mismatches = new ArrayList<>();
+    for (String[] word : WORDS) {
+      check(LanguageType.valueOf(word[0]), word[1], word[2], mismatches);
+    }
+    assertNoMismatches(mismatches);
+  }
+
+  @Test
+  public void generatedWordPairsMatchReference() {
+    Random random = new Random(SEED);
+    List<String> mismatches = new ArrayList<>();
+
+    // Iterate in a fixed order, so that the seed always gives the same corpus
+    Map<LanguageType, Map<String, List<String>>> languages =
+        new EnumMap<>(ReferenceValidator.consonants_map);
+    for (Map.Entry<LanguageType, Map<String, List<String>>> language : languages.entrySet()) {
+      LanguageType lang = language.getKey();
+      int base = ReferenceValidator.lang_base.get(lang);
+      List<Map.Entry<String, List<String>>> consonants =
+          new ArrayList<>(new TreeMap<>(language.getValue()).entrySet());
+
+      for (int i = 0; i < PAIRS_PER_LANGUAGE; i++) {
+        StringBuilder eng = new StringBuilder();
+        StringBuilder indic = new StringBuilder();
+        int length = 1 + random.nextInt(5);
+        for (int j = 0; j < length; j++) {
+          Map.Entry<String, List<String>> consonant =
+              consonants.get(random.nextInt(consonants.size()));
+          eng.append(consonant.getKey());
+          if (random.nextInt(3) == 0) {
+            eng.append(ENG_VOWELS.charAt(random.nextInt(ENG_VOWELS.length())));
+          }
+          if (random.nextInt(8) == 0) {
+            eng.append(consonant.getKey());
+          }
+
+          // Mostly a transliteration of the consonant, and otherwise any character of the script
+          List<String> options = consonant.getValue();
+          if (random.nextInt(10) != 0) {
+            indic.append(options.get(random.nextInt(options.size())));
+          } else {
+            indic.append((char) (base + random.nextInt(128)));
+          }
+          if (random.nextInt(3) == 0) {
+            indic.append(special(random, base));
+          }
+        }
+        if (random.nextInt(4) == 0) {
+          eng.insert(0, ENG_VOWELS.charAt(random.nextInt(5)));
+        }
+        if (random.nextInt(4) == 0) {
+          indic.insert(0, special(random, base));
+        }
+
+        check(lang, indic.toString(), eng.toString(), mismatches);
+      }
+    }
+    assertNoMismatches(mismatches);
+  }
+
+  private static char special(Random random, int base) {
+    return (char) (base + SPECIAL_OFFSETS[random.nextInt(SPECIAL_OFFSETS.length)]);
+  }
+
+  /** Compare the results of both validators, or the class of the exception they throw */
+  private static void check(
+      LanguageType lang, String indicWord, String engWord, List<String> mismatches) {
+    String expected = result(() -> ReferenceValidator.isValid(lang, indicWord, engWord));
+    String actual = result(() -> Validator.isValid(lang, indicWord, engWord));
+    if (!Objects.equals(expected, actual)) {
+      mismatches.add(
+          lang + " " + indicWord + " " + engWord + ": expected " + expected + ", was " + actual);
+    }
+  }
+
+  private interface Validation {
+    boolean isValid();
+  }
+
+  private static String result(Validation validation) {
+    try {
+      return Boolean.toString(validation.isValid());
+    } catch (RuntimeException e) {
+      return e.getClass().getName();
+    }
+  }
+
+  private static void assertNoMismatches(List<String> mismatches) {
+    assertTrue(
+        mismatches.size()
+            + " mismatches, the first: "
+            + mismatches.subList(0, Math.min(mismatches.size(), 10)),
+        mismatches.isEmpty());
+  }
+}
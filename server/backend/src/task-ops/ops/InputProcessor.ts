@@ -94,8 +94,10 @@ export async function processInputFile(
         const inputTgzFileName = getBlobName(inputBlobParams);
         const inputTgzFilePath = `${taskFolder}/${inputTgzFileName}`;
 
-        // Create the tar ball
-        await tar.c({ C: taskFolder, file: inputTgzFilePath, gzip: true }, fileList);
+        // Create the tar ball. Seekable inputs are left uncompressed, under the same blob name, and the
+        // client app tells them apart by their contents.
+        const gzip = !task.params.seekableInputs;
+        await tar.c({ C: taskFolder, file: inputTgzFilePath, gzip }, fileList);
         const fileRecord = await upsertKaryaFile(inputTgzFilePath, 'MD5', inputBlobParams);
 
         // Update the microtask record
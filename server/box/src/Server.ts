@@ -10,6 +10,11 @@ import { promises as fsp } from 'fs';
 import Koa from 'koa';
 import { catchAll, httpRequestLogger, setupDbConnection, mainLogger as logger } from '@karya/common';
 import router, { authenticateRequest } from './routes/Routes';
+import {
+  expireUploadSessions,
+  UPLOAD_SESSION_EXPIRY_INTERVAL,
+  UPLOAD_SESSION_FOLDER,
+} from './controllers/KaryaFileController';
 import { containerNames } from '@karya/core';
 import { envGetNumber, envGetString } from '@karya/misc-utils';
 
@@ -31,7 +36,7 @@ app.use(router.routes());
   // Create all the local file folders
   logger.info(`Creating local folders for karya files`);
   const folder = envGetString('LOCAL_FOLDER');
-  await BBPromise.mapSeries(containerNames, async (cname) => {
+  await BBPromise.mapSeries([...containerNames, UPLOAD_SESSION_FOLDER], async (cname) => {
     try {
       await fsp.mkdir(`${process.cwd()}/${folder}/${cname}`, {
         recursive: true,
@@ -41,6 +46,12 @@ app.use(router.routes());
       // TODO: Explicit check for other kinds of error
     }
   });
+
+  // Remove abandoned upload sessions now and then
+  const expireSessions = () =>
+    expireUploadSessions().catch((e) => logger.error(`Could not remove abandoned upload sessions: ${e.message}`));
+  await expireSessions();
+  setInterval(expireSessions, UPLOAD_SESSION_EXPIRY_INTERVAL);
 })()
   .then(() => {
     // Start the local web server
@@ -56,7 +56,10 @@ export const get: KaryaMiddleware = async (ctx) => {
     // This can be optimized to just be distinct task_ids
     const taskIds = microtasks.map((t) => t.task_id);
     const tasks = await BasicModel.getRecords('task', {}, [['id', taskIds]]);
-    HttpResponse.OK(ctx, { tasks, microtasks, assignments });
+    // Input file records let the client verify its downloads
+    const fileIds = microtasks.filter((mt) => mt.input_file_id).map((mt) => mt.input_file_id as string);
+    const files = await BasicModel.getRecords('karya_file', {}, [['id', fileIds]]);
+    HttpResponse.OK(ctx, { tasks, microtasks, assignments, files });
   }
 };
 
@@ -15,9 +15,13 @@ import {
   MicrotaskAssignmentRecord,
   MicrotaskRecord,
   KaryaFile,
+  getChecksum,
 } from '@karya/core';
 import { BasicModel, mainLogger } from '@karya/common';
 import fs from 'fs';
+import { pipeline } from 'stream';
+import { promisify } from 'util';
+import { v4 as uuidv4 } from 'uuid';
 
 export type KaryaFileGetRouteState = KaryaRouteState<{
   karya_file: KaryaFileRecord;
@@ -109,7 +113,8 @@ export const checkMicrotaskInputFile: KaryaFileGetMiddleware = async (ctx, next)
 };
 
 /**
- * Get and return a karya file.
+ * Get and return a karya file. Supports a single open ended range request
+ * (bytes=<start>-) so that clients can resume interrupted downloads.
  * @param ctx Karya request context
  */
 export const getFile: KaryaFileGetMiddleware = async (ctx) => {
@@ -118,12 +123,34 @@ export const getFile: KaryaFileGetMiddleware = async (ctx) => {
   const fileName = ctx.state.karya_file.name;
   const filePath = `${process.cwd()}/${local_folder}/${cname}/${fileName}`;
 
+  let size: number;
   try {
-    ctx.attachment(fileName);
-    HttpResponse.OK(ctx, fs.createReadStream(filePath));
+    size = (await fs.promises.stat(filePath)).size;
   } catch (e) {
     HttpResponse.NotFound(ctx, 'Requested file is not available');
+    return;
+  }
+
+  ctx.attachment(fileName);
+  ctx.set('Accept-Ranges', 'bytes');
+
+  const range = /^bytes=(\d+)-$/.exec(ctx.get('Range'));
+  if (!range) {
+    HttpResponse.OK(ctx, fs.createReadStream(filePath));
+    return;
+  }
+
+  const start = Number(range[1]);
+  if (start >= size) {
+    ctx.set('Content-Range', `bytes */${size}`);
+    HttpResponse.GenericError(ctx, 'Requested range not satisfiable', 416, 'Invalid range');
+    return;
   }
+
+  ctx.status = 206;
+  ctx.set('Content-Range', `bytes ${start}-${size - 1}/${size}`);
+  ctx.length = size - start;
+  ctx.body = fs.createReadStream(filePath, { start });
 };
 
 export type KaryaFileSubmitRouteState = KaryaRouteState<{
@@ -272,3 +299,268 @@ export const submitFile: KaryaFileSubmitMiddleware = async (ctx, next) => {
     HttpResponse.BadRequest(ctx, 'Could not copy file');
   }
 };
+
+// Folder (inside the local folder) that holds the partial files of resumable uploads
+export const UPLOAD_SESSION_FOLDER = 'upload-sessions';
+
+// Size of the chunks in which clients should send resumable uploads
+const UPLOAD_CHUNK_SIZE = 256 * 1024;
+
+// Upload sessions that have not been written to for this long are abandoned
+const UPLOAD_SESSION_TTL = 7 * 24 * 60 * 60 * 1000;
+
+// Interval at which abandoned upload sessions are removed
+export const UPLOAD_SESSION_EXPIRY_INTERVAL = 60 * 60 * 1000;
+
+// Upload sessions with a chunk being appended or a completion under way. Any
+// other request that writes to such a session is refused.
+const busyUploadSessions = new Set<string>();
+
+/**
+ * Resumable upload session. The partially uploaded file is stored next to
+ * the session and the number of bytes in it is the acknowledged offset.
+ */
+type UploadSession = {
+  id: string;
+  assignment_id: string;
+  worker_id: string;
+};
+
+export type UploadSessionRouteState = KaryaRouteState<{
+  upload_session: UploadSession;
+  karya_file: KaryaFile;
+  filePath: string;
+}>;
+
+type UploadSessionMiddleware = KaryaMiddleware<UploadSessionRouteState>;
+
+/**
+ * Get the path of a session metadata or partial file
+ * @param id Upload session ID
+ * @param ext json for the session metadata, part for the partial file
+ */
+function uploadSessionPath(id: string, ext: 'json' | 'part') {
+  const folder = envGetString('LOCAL_FOLDER');
+  return `${process.cwd()}/${folder}/${UPLOAD_SESSION_FOLDER}/${id}.${ext}`;
+}
+
+/**
+ * Send the current state of an upload session
+ * @param ctx Karya request context
+ * @param session Upload session
+ */
+async function sendUploadSession(ctx: Parameters<UploadSessionMiddleware>[0], session: UploadSession) {
+  const { size } = await fs.promises.stat(uploadSessionPath(session.id, 'part'));
+  HttpResponse.OK(ctx, { id: session.id, offset: size, chunk_size: UPLOAD_CHUNK_SIZE });
+}
+
+/**
+ * Create a resumable upload session for the output file of an assignment
+ * @param ctx Karya request context
+ */
+export const createUploadSession: UploadSessionMiddleware = async (ctx) => {
+  const mta_id: string = ctx.params.id;
+
+  // Get the microtask assignment
+  let mta: MicrotaskAssignmentRecord;
+  try {
+    mta = await BasicModel.getSingle('microtask_assignment', { id: mta_id });
+  } catch (e) {
+    HttpResponse.NotFound(ctx, `Assignment with ID '${mta_id}' does not exist`);
+    return;
+  }
+
+  // Check if user is indeed assigned the microtask assignment
+  if (mta.worker_id != ctx.state.entity.id) {
+    HttpResponse.Forbidden(ctx, 'User does not have access to assignment');
+    return;
+  }
+
+  const session: UploadSession = { id: uuidv4(), assignment_id: mta_id, worker_id: ctx.state.entity.id };
+  try {
+    await fs.promises.writeFile(uploadSessionPath(session.id, 'part'), '');
+    await fs.promises.writeFile(uploadSessionPath(session.id, 'json'), JSON.stringify(session));
+  } catch (e) {
+    HttpResponse.InternalError(ctx, 'Could not create upload session');
+    return;
+  }
+
+  await sendUploadSession(ctx, session);
+};
+
+/**
+ * Check if an upload session exists and belongs to the assignment and user
+ * @param ctx Karya request context
+ */
+export const checkUploadSession: UploadSessionMiddleware = async (ctx, next) => {
+  const session_id: string = ctx.params.session_id;
+
+  // Session IDs are used in file paths. Only accept UUIDs.
+  if (!/^[0-9a-f-]{36}$/.test(session_id)) {
+    HttpResponse.BadRequest(ctx, 'Invalid upload session ID');
+    return;
+  }
+
+  let session: UploadSession;
+  try {
+    session = JSON.parse(await fs.promises.readFile(uploadSessionPath(session_id, 'json'), 'utf-8'));
+  } catch (e) {
+    HttpResponse.NotFound(ctx, `Upload session '${session_id}' does not exist`);
+    return;
+  }
+
+  if (session.assignment_id != ctx.params.id || session.worker_id != ctx.state.entity.id) {
+    HttpResponse.Forbidden(ctx, 'User does not have access to upload session');
+    return;
+  }
+
+  ctx.state.upload_session = session;
+  await next();
+};
+
+/**
+ * Get the acknowledged offset of an upload session
+ * @param ctx Karya request context
+ */
+export const getUploadSession: UploadSessionMiddleware = async (ctx) => {
+  await sendUploadSession(ctx, ctx.state.upload_session);
+};
+
+/**
+ * Claim an upload session for a request that writes to it. Fails the request
+ * with a conflict if another request is writing to the session.
+ * @param ctx Karya request context
+ * @returns Whether the session was claimed. It must be released once done.
+ */
+function claimUploadSession(ctx: Parameters<UploadSessionMiddleware>[0]) {
+  const session = ctx.state.upload_session;
+  if (busyUploadSessions.has(session.id)) {
+    HttpResponse.GenericError(ctx, 'Upload session is busy with another request', 409, 'Session busy');
+    return false;
+  }
+  busyUploadSessions.add(session.id);
+  return true;
+}
+
+/**
+ * Append a chunk to an upload session. The chunk is the raw request body and
+ * is only accepted at the current offset of the session. Appends to a session
+ * are serialized, so two chunks sent at the same offset cannot both be appended.
+ * @param ctx Karya request context
+ */
+export const appendUploadChunk: UploadSessionMiddleware = async (ctx) => {
+  const session = ctx.state.upload_session;
+  const partPath = uploadSessionPath(session.id, 'part');
+  const offset = Number(ctx.query.offset);
+
+  if (!claimUploadSession(ctx)) return;
+  try {
+    const { size } = await fs.promises.stat(partPath);
+    if (offset != size) {
+      HttpResponse.GenericError(ctx, `Upload session is at offset ${size}`, 409, 'Offset mismatch');
+      return;
+    }
+
+    try {
+      await promisify(pipeline)(ctx.req, fs.createWriteStream(partPath, { flags: 'a' }));
+    } catch (e) {
+      // Whatever was received is kept. The client resumes from the acknowledged offset.
+      mainLogger.warn(`Upload interrupted for session ${session.id}`);
+    }
+
+    await sendUploadSession(ctx, session);
+  } finally {
+    busyUploadSessions.delete(session.id);
+  }
+};
+
+/**
+ * Complete an upload session. Verify the checksum of the uploaded file and
+ * hand it over to the regular output file submission.
+ * @param ctx Karya request context
+ */
+export const completeUploadSession: UploadSessionMiddleware = async (ctx, next) => {
+  const session = ctx.state.upload_session;
+
+  if (!claimUploadSession(ctx)) return;
+  try {
+    await completeClaimedUploadSession(ctx, next);
+  } finally {
+    busyUploadSessions.delete(session.id);
+  }
+};
+
+/**
+ * Complete an upload session that is claimed by the request
+ * @param ctx Karya request context
+ */
+const completeClaimedUploadSession: UploadSessionMiddleware = async (ctx, next) => {
+  const session = ctx.state.upload_session;
+  const partPath = uploadSessionPath(session.id, 'part');
+  const karya_file: KaryaFile = ctx.request.body;
+
+  let checksum: string;
+  try {
+    checksum = await getChecksum(partPath, karya_file.algorithm);
+  } catch (e) {
+    HttpResponse.BadRequest(ctx, 'Invalid checksum algorithm');
+    return;
+  }
+
+  if (checksum != karya_file.checksum) {
+    // The session is corrupt. Drop it so that the client starts afresh.
+    await Promise.all([fs.promises.unlink(partPath), fs.promises.unlink(uploadSessionPath(session.id, 'json'))]);
+    HttpResponse.BadRequest(ctx, 'Checksum mismatch');
+    return;
+  }
+
+  ctx.state.filePath = partPath;
+  ctx.state.karya_file = {
+    algorithm: karya_file.algorithm,
+    checksum: karya_file.checksum,
+    timestamp: karya_file.timestamp,
+  };
+  await next();
+
+  // Partial file is consumed by the submission. Remove the session.
+  if (ctx.status == 200) {
+    await fs.promises.unlink(uploadSessionPath(session.id, 'json'));
+  }
+};
+
+/**
+ * Remove the upload sessions whose partial file has not been written to for
+ * UPLOAD_SESSION_TTL. These are sessions that clients abandoned, or dropped
+ * after a failed completion. Partial files and metadata left without the other
+ * half are removed as well once they are that old.
+ */
+export async function expireUploadSessions() {
+  const folder = envGetString('LOCAL_FOLDER');
+  const directory = `${process.cwd()}/${folder}/${UPLOAD_SESSION_FOLDER}`;
+  const files = await fs.promises.readdir(directory);
+
+  const ids = new Set<string>();
+  files.forEach((file) => {
+    const match = /^([0-9a-f-]{36})\.(json|part)$/.exec(file);
+    if (match) ids.add(match[1]);
+  });
+
+  const now = Date.now();
+  let expired = 0;
+  for (const id of ids) {
+    if (busyUploadSessions.has(id)) continue;
+
+    // The partial file is written with every chunk. Fall back to the metadata for a session without one.
+    const paths = [uploadSessionPath(id, 'part'), uploadSessionPath(id, 'json')];
+    const stats = await Promise.all(paths.map((path) => fs.promises.stat(path).catch(() => null)));
+    const lastWrite = Math.max(...stats.map((stat) => (stat ? stat.mtimeMs : 0)));
+    if (now - lastWrite < UPLOAD_SESSION_TTL) continue;
+
+    await Promise.all(paths.map((path) => fs.promises.unlink(path).catch(() => undefined)));
+    expired += 1;
+  }
+
+  if (expired > 0) {
+    mainLogger.info(`Removed ${expired} abandoned upload sessions`);
+  }
+}
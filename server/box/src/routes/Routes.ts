@@ -67,6 +67,36 @@ router.post<KaryaFileController.KaryaFileSubmitRouteState, {}>(
   KaryaFileController.submitOutputFile,
   KaryaFileController.submitFile
 );
+
+// Resumable output file upload routes
+router.post<KaryaFileController.UploadSessionRouteState, {}>(
+  '/assignment/:id/output_file/upload',
+  needIdToken,
+  KaryaFileController.createUploadSession
+);
+router.get<KaryaFileController.UploadSessionRouteState, {}>(
+  '/assignment/:id/output_file/upload/:session_id',
+  needIdToken,
+  KaryaFileController.checkUploadSession,
+  KaryaFileController.getUploadSession
+);
+router.put<KaryaFileController.UploadSessionRouteState, {}>(
+  '/assignment/:id/output_file/upload/:session_id',
+  needIdToken,
+  KaryaFileController.checkUploadSession,
+  KaryaFileController.appendUploadChunk
+);
+router.post<KaryaFileController.UploadSessionRouteState, {}>(
+  '/assignment/:id/output_file/upload/:session_id/complete',
+  needIdToken,
+  BodyParser(),
+  KaryaFileController.checkUploadSession,
+  KaryaFileController.completeUploadSession,
+  // @ts-ignore Possibly incorrect typing by koa
+  KaryaFileController.submitOutputFile,
+  KaryaFileController.submitFile
+);
+
 router.post<KaryaFileController.KaryaFileSubmitRouteState, {}>(
   '/worker/log_file',
   needIdToken,
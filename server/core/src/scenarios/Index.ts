@@ -81,6 +81,7 @@ type CoreScenarioParamsType = {
   instruction: string;
   creditsPerMicrotask: number;
   maxMicrotasksPerUser: number;
+  seekableInputs?: boolean;
 };
 
 export const coreScenarioParameters: ParameterArray<CoreScenarioParamsType> = [
@@ -108,6 +109,15 @@ export const coreScenarioParameters: ParameterArray<CoreScenarioParamsType> = [
     description: 'Maximum number of microtasks per user',
     required: true,
   },
+
+  {
+    id: 'seekableInputs',
+    type: 'boolean',
+    label: 'Seekable Microtask Inputs',
+    description:
+      'Send microtask input files as uncompressed tar balls, so that the client app can read them without extracting them. Best for inputs that are already compressed, such as images. Builds of the app from before seekable inputs were supported cannot extract them',
+    required: false,
+  },
 ];
 
 /**
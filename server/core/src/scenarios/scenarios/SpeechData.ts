@@ -10,6 +10,13 @@ import { LanguageCode, languageMap, languageParameter } from '../../languages/In
 // Speech data task input parameters
 type SpeechDataTaskInputParameters = {
   language: LanguageCode;
+  audioProfile?: string;
+  audioCodec?: string;
+  audioSampleRate?: number;
+  audioBitRate?: number;
+  trimSilence?: boolean;
+  silenceMargin?: number;
+  silenceThreshold?: number;
 };
 
 // Speech data input format
@@ -35,6 +42,73 @@ export type BaseSpeechDataScenario = BaseScenarioInterface<
  */
 const task_input: BaseSpeechDataScenario['task_input'] = [
   languageParameter('language', 'Language', 'Language in which the recordings are collected'),
+
+  {
+    id: 'audioProfile',
+    type: 'enum',
+    label: 'Recording Encoder Profile',
+    description:
+      'Codec, sample rate and bit rate with which recordings are encoded. Devices that cannot encode a codec fall back to HE-AAC and then to AAC-LC',
+    list: [
+      ['default', 'AAC-LC, 44.1 kHz, 128 kbps'],
+      ['speech', 'HE-AAC, 16 kHz, 24 kbps'],
+      ['speech-opus', 'Opus, 16 kHz, 16 kbps (Android 10 and above)'],
+    ],
+    required: false,
+  },
+
+  {
+    id: 'audioCodec',
+    type: 'enum',
+    label: 'Recording Codec',
+    description: 'Codec with which recordings are encoded. Overrides the codec of the encoder profile',
+    list: [
+      ['aac-lc', 'AAC-LC'],
+      ['aac-he', 'HE-AAC'],
+      ['opus', 'Opus (Android 10 and above)'],
+    ],
+    required: false,
+  },
+
+  {
+    id: 'audioSampleRate',
+    type: 'int',
+    label: 'Recording Sample Rate (Hz)',
+    description: 'Rate at which recordings are captured and encoded. Overrides the sample rate of the encoder profile',
+    required: false,
+  },
+
+  {
+    id: 'audioBitRate',
+    type: 'int',
+    label: 'Recording Bit Rate (bps)',
+    description: 'Bit rate with which recordings are encoded. Overrides the bit rate of the encoder profile',
+    required: false,
+  },
+
+  {
+    id: 'trimSilence',
+    type: 'boolean',
+    label: 'Trim Silence',
+    description: 'Trim the silence before and after the speech out of recordings. Off by default',
+    required: false,
+  },
+
+  {
+    id: 'silenceMargin',
+    type: 'int',
+    label: 'Silence Margin (ms)',
+    description: 'Silence kept before and after the speech when silence is trimmed. Defaults to 300 ms',
+    required: false,
+  },
+
+  {
+    id: 'silenceThreshold',
+    type: 'float',
+    label: 'Silence Threshold (dBFS)',
+    description: 'Level below which audio is deemed silent when silence is trimmed. Defaults to -45 dBFS',
+    required: false,
+  },
 ];
 
 // Task input file format for speech data task